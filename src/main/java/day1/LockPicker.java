@@ -5,19 +5,24 @@ import day1.locks.Lock;
 import day1.locks.NewMethodLock;
 import utils.fileReaders.FileReader;
 import utils.fileReaders.FileReaderException;
+import utils.fileReaders.Resources;
 import utils.fileReaders.TextFileReader;
 import utils.files.BaseFile;
+import utils.files.ConcurrentLogAppender;
 import utils.files.TextFile;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Objects;
 
 public class LockPicker {
     private static final String BASE_PATH = "src/";
     private static final String LOCK_FILE_NAME = "lockRotations.txt";
     private static final String LOG_FILE_NAME = "lock.log";
+    // Option de la ligne de commande : journalise chaque étape dans lock.log (celui des ressources s'il existe,
+    // sinon src/lock.log, relatif au dossier de lancement)
+    private static final String LOG_OPTION = "--log";
 
     public static TextFile loadFromRessources(String fileName) throws FileReaderException {
         return (TextFile) TextFileReader.getInstance().loadFromResources(fileName, LockPicker.class.getClassLoader());
@@ -27,7 +32,6 @@ public class LockPicker {
         System.out.println("\u001B[5;33m===== LockPicker started =====\u001B[0m");
 
         TextFile combFile;
-        TextFile logFile;
 
         try {
             combFile = loadFromRessources(LOCK_FILE_NAME);
@@ -36,28 +40,37 @@ public class LockPicker {
             combFile.write();
         }
 
-        try {
-            logFile = loadFromRessources(LOG_FILE_NAME);
-        } catch (Exception e) {
-            logFile = new TextFile(BASE_PATH + LOG_FILE_NAME);
-            logFile.write();
+        // Journal désactivé par défaut ; null n'est pas fermé par le try
+        ConcurrentLogAppender enabledLog = null;
+        if (Arrays.asList(args).contains(LOG_OPTION)) {
+            Path logPath = Resources.resolveOrDefault(LOG_FILE_NAME, LockPicker.class.getClassLoader(), Path.of(BASE_PATH + LOG_FILE_NAME));
+            enabledLog = new ConcurrentLogAppender(logPath);
         }
 
-        // Part 1
-        Lock lock1 = new BasicLock(50);
-        for (String rotation : combFile) {
-            Rotation r = new Rotation(rotation);
-            lock1.addRotation(r);
-        }
-        System.out.println("Part 1 password : " + lock1.obtainPasscode());
+        // Le journal est écrit par un thread dédié : chaque ligne ne coûte qu'une mise en file
+        try (ConcurrentLogAppender log = enabledLog) {
+            // Part 1
+            Lock lock1 = new BasicLock(50);
+            for (String rotation : combFile) {
+                Rotation r = new Rotation(rotation);
+                lock1.addRotation(r);
+                if (log != null) log.offer("part 1 " + rotation + " -> " + lock1);
+            }
+            System.out.println("Part 1 password : " + lock1.obtainPasscode());
+
+            // Part 2
+            Lock lock2 = new NewMethodLock(50);
+            for (String rotation : combFile) {
+                Rotation r = new Rotation(rotation);
+                lock2.addRotation(r);
+                if (log != null) log.offer("part 2 " + rotation + " -> " + lock2);
+            }
+            System.out.println("Part 2 password : " + lock2.obtainPasscode());
 
-        // Part 2
-        Lock lock2 = new NewMethodLock(50);
-        for (String rotation : combFile) {
-            Rotation r = new Rotation(rotation);
-            lock2.addRotation(r);
+            if (log != null && log.getDroppedCount() > 0) {
+                System.out.println(log.getDroppedCount() + " log lines dropped");
+            }
         }
-        System.out.println("Part 2 password : " + lock2.obtainPasscode());
 
         System.out.println("\u001B[5;33m===== LockPicker finished =====\u001B[0m");
     }
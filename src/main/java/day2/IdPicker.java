@@ -1,18 +1,24 @@
 package day2;
 
 import utils.fileReaders.FileReaderException;
+import utils.fileReaders.Resources;
 import utils.fileReaders.TabularFileReader;
 import utils.fileReaders.TextFileReader;
+import utils.files.ConcurrentLogAppender;
 import utils.files.TabularFile;
 import utils.files.TextFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class IdPicker {
     private static final String BASE_PATH = "src/";
     private static final String IDS_FILE_NAME = "idsSource.csv";
     private static final String LOG_FILE_NAME = "ids.log";
+    // Option de la ligne de commande : journalise chaque étape dans ids.log (celui des ressources s'il existe,
+    // sinon src/ids.log, relatif au dossier de lancement)
+    private static final String LOG_OPTION = "--log";
 
     public static TextFile loadFromRessources(String fileName) throws FileReaderException {
         return (TextFile) TextFileReader.getInstance().loadFromResources(fileName, IdPicker.class.getClassLoader());
@@ -64,18 +70,6 @@ public class IdPicker {
 
     public static void main(String[] args) throws IOException {
         TabularFile idFile = null;
-        TextFile logsFile = null;
-
-//        try {
-//            logsFile = loadFromRessources(LOG_FILE_NAME);
-//        } catch (FileReaderException e) {
-//            e.printStackTrace();
-//            logsFile = new TextFile(BASE_PATH + IDS_FILE_NAME);
-//            logsFile.write();
-//        } catch (Exception e) {
-//            e.printStackTrace();
-//        }
-
         try {
             idFile = (TabularFile) TabularFileReader.getInstance().loadFromResources(IDS_FILE_NAME, IdPicker.class.getClassLoader());
         } catch (FileReaderException e) {
@@ -96,46 +90,61 @@ public class IdPicker {
         }
         System.out.println();
 
-        Set<Long> invalidIds = new HashSet<>();
-        long invalidSum = 0;
+        // Journal désactivé par défaut ; null n'est pas fermé par le try
+        ConcurrentLogAppender enabledLog = null;
+        if (Arrays.asList(args).contains(LOG_OPTION)) {
+            Path logPath = Resources.resolveOrDefault(LOG_FILE_NAME, IdPicker.class.getClassLoader(), Path.of(BASE_PATH + LOG_FILE_NAME));
+            enabledLog = new ConcurrentLogAppender(logPath);
+        }
 
-        // Part 1
-        for (String[] splitId : splitIds) {
-            String firstId = splitId[0];
-            String secondId = splitId[1];
-            long id0 = Long.parseLong(firstId), id1 = Long.parseLong(secondId);
-
-            for (long id = id0; id <= id1; id++) {
-                if (!isValidId_firstMethod(id + "")) {
-                    boolean success = invalidIds.add(id);
-                    if (success) {
-                        invalidSum += id;
+        // Journal écrit par un thread dédié, pour ne pas ralentir le parcours des ids
+        try (ConcurrentLogAppender log = enabledLog) {
+            Set<Long> invalidIds = new HashSet<>();
+            long invalidSum = 0;
+
+            // Part 1
+            for (String[] splitId : splitIds) {
+                String firstId = splitId[0];
+                String secondId = splitId[1];
+                long id0 = Long.parseLong(firstId), id1 = Long.parseLong(secondId);
+
+                for (long id = id0; id <= id1; id++) {
+                    if (!isValidId_firstMethod(id + "")) {
+                        boolean success = invalidIds.add(id);
+                        if (success) {
+                            invalidSum += id;
+                            if (log != null) log.offer("part 1 invalid id " + id);
+                        }
                     }
                 }
             }
-        }
-        System.out.println("The invalid ids : " + invalidIds);
-        System.out.println("The invalid id sum is : " + invalidSum);
-
-        // Part 2
-        invalidIds = new HashSet<>();
-        invalidSum = 0;
-        for (String[] splitId : splitIds) {
-            String firstId = splitId[0];
-            String secondId = splitId[1];
-            long id0 = Long.parseLong(firstId), id1 = Long.parseLong(secondId);
-
-            for (long id = id0; id <= id1; id++) {
-                if (isInvalidId(id + "")) {
-                    boolean success = invalidIds.add(id);
-                    if (success) {
-                        invalidSum += id;
+            System.out.println("The invalid ids : " + invalidIds);
+            System.out.println("The invalid id sum is : " + invalidSum);
+
+            // Part 2
+            invalidIds = new HashSet<>();
+            invalidSum = 0;
+            for (String[] splitId : splitIds) {
+                String firstId = splitId[0];
+                String secondId = splitId[1];
+                long id0 = Long.parseLong(firstId), id1 = Long.parseLong(secondId);
+
+                for (long id = id0; id <= id1; id++) {
+                    if (isInvalidId(id + "")) {
+                        boolean success = invalidIds.add(id);
+                        if (success) {
+                            invalidSum += id;
+                            if (log != null) log.offer("part 2 invalid id " + id);
+                        }
                     }
                 }
             }
+            System.out.println("The invalid ids : " + invalidIds);
+            System.out.println("The invalid id sum is : " + invalidSum);
+            if (log != null && log.getDroppedCount() > 0) {
+                System.out.println(log.getDroppedCount() + " log lines dropped");
+            }
         }
-        System.out.println("The invalid ids : " + invalidIds);
-        System.out.println("The invalid id sum is : " + invalidSum);
         System.out.println("\u001B[5;33m===== IdPicker finished =====\u001B[0m");
     }
 }
@@ -1,14 +1,27 @@
 package day4;
 
 import utils.fileReaders.FileReaderException;
+import utils.fileReaders.Resources;
 import utils.fileReaders.TextFileReader;
 import utils.files.TextFile;
+import utils.files.medias.Image;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class PaperRoller {
     private static final String ROLLS_FILE_NAME = "paperRolls.txt";
+    // En dessous de ce taux d'occupation, la simulation passe par la grille creuse
+    private static final double SPARSE_OCCUPANCY_THRESHOLD = 0.10;
+    // Taille maximale d'un tableau de candidats de la simulation creuse
+    private static final int MAX_CANDIDATES = Integer.MAX_VALUE - 8;
+    // Option de la ligne de commande : enregistre une image de la chronologie des retraits (débogage)
+    private static final String TIMELINE_OPTION = "--timeline";
+    private static final String TIMELINE_IMAGE_NAME = "removalTimeline";
 
     // Cette méthode suppose que 'paperRolls.txt' contient la grille de rouleaux.
     public static TextFile loadFromRessources(String fileName) throws FileReaderException {
@@ -115,6 +128,16 @@ public class PaperRoller {
      * @return Le nombre total de rouleaux retirés.
      */
     public static int solvePartTwo(char[][] initialGrid) {
+        return solvePartTwo(initialGrid, null);
+    }
+
+    /**
+     * Simule le processus itératif de retrait des rouleaux en notant la vague de chaque retrait.
+     * @param initialGrid La grille de départ.
+     * @param timeline Chronologie à remplir, ou null.
+     * @return Le nombre total de rouleaux retirés.
+     */
+    public static int solvePartTwo(char[][] initialGrid, RemovalTimeline timeline) {
         // Créer une copie de la grille pour la modifier pendant la simulation
         char[][] grid = new char[initialGrid.length][];
         for (int i = 0; i < initialGrid.length; i++) {
@@ -123,11 +146,13 @@ public class PaperRoller {
 
         int totalRemoved = 0;
         int removedInIteration;
+        int wave = 0;
 
         do {
             // 1. Identifier tous les rouleaux accessibles dans l'état actuel
             List<int[]> accessible = findAccessibleRolls(grid);
             removedInIteration = accessible.size();
+            wave++;
 
             // 2. Retirer ces rouleaux simultanément
             for (int[] coords : accessible) {
@@ -135,6 +160,9 @@ public class PaperRoller {
                 int c = coords[1];
                 // Retirer le rouleau (le remplacer par un espace vide, par ex. '.')
                 grid[r][c] = '.';
+                if (timeline != null) {
+                    timeline.record(r, c, wave);
+                }
             }
 
             // 3. Compter
@@ -146,7 +174,254 @@ public class PaperRoller {
         return totalRemoved;
     }
 
-    public static void main(String[] args) throws FileReaderException {
+    /**
+     * Indique si l'entrepôt est sous {@link #SPARSE_OCCUPANCY_THRESHOLD}, en comptant les rouleaux
+     * directement dans les lignes du fichier (sans construire de grille). Le comptage s'arrête
+     * dès que le seuil est dépassé.
+     */
+    private static boolean isMostlyEmpty(TextFile rollsFile, int cols) {
+        long limit = (long) ((double) rollsFile.getLineCount() * cols * SPARSE_OCCUPANCY_THRESHOLD);
+        long rolls = 0;
+        for (int r = 0; r < rollsFile.getLineCount(); r++) {
+            CharSequence line = rollsFile.getLineView(r);
+            for (int c = 0; c < line.length(); c++) {
+                if (line.charAt(c) == '@' && ++rolls > limit) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Version creuse de {@link #solve(char[][])} : seules les cases occupées sont visitées.
+     * @param grid La grille creuse.
+     * @return Le nombre total de rouleaux accessibles.
+     */
+    public static long solve(SparsePaperGrid grid) {
+        long accessibleCount = 0;
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int k = 0; k < grid.getRunCount(r); k++) {
+                for (int c = grid.getRunStart(r, k); c < grid.getRunEnd(r, k); c++) {
+                    if (grid.countNeighbors(r, c) < 4) {
+                        accessibleCount++;
+                    }
+                }
+            }
+        }
+        return accessibleCount;
+    }
+
+    /**
+     * Version creuse de {@link #solvePartTwo(char[][])}.
+     * Après la première vague, seuls les voisins des rouleaux retirés peuvent devenir
+     * accessibles : ce sont les seuls candidats examinés à la vague suivante.
+     * <p>Attention : la grille est modifiée.</p>
+     * @param grid La grille creuse.
+     * @return Le nombre total de rouleaux retirés.
+     */
+    public static long solvePartTwo(SparsePaperGrid grid) {
+        return solvePartTwo(grid, null);
+    }
+
+    /**
+     * Version creuse de {@link #solvePartTwo(char[][], RemovalTimeline)}.
+     * @param grid La grille creuse (modifiée).
+     * @param timeline Chronologie à remplir, ou null.
+     * @return Le nombre total de rouleaux retirés.
+     */
+    public static long solvePartTwo(SparsePaperGrid grid, RemovalTimeline timeline) {
+        if (grid.getRollCount() > MAX_CANDIDATES) {
+            throw new IllegalStateException("Too many rolls for the sparse simulation: " + grid.getRollCount());
+        }
+        // 1. Première vague : tous les rouleaux sont candidats (déjà triés ligne par ligne)
+        long[] candidates = new long[(int) grid.getRollCount()];
+        int candidateCount = 0;
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int k = 0; k < grid.getRunCount(r); k++) {
+                for (int c = grid.getRunStart(r, k); c < grid.getRunEnd(r, k); c++) {
+                    candidates[candidateCount++] = SparsePaperGrid.pack(r, c);
+                }
+            }
+        }
+
+        long totalRemoved = 0;
+        long[] removed = new long[candidateCount];
+        int wave = 0;
+
+        while (candidateCount > 0) {
+            // 2. Identifier les rouleaux accessibles parmi les candidats (grille inchangée)
+            int removedCount = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                long cell = candidates[i];
+                if (grid.countNeighbors(SparsePaperGrid.rowOf(cell), SparsePaperGrid.colOf(cell)) < 4) {
+                    removed[removedCount++] = cell;
+                }
+            }
+            if (removedCount == 0) break;
+
+            // 3. Retirer ces rouleaux simultanément
+            grid.removeAll(removed, removedCount);
+            totalRemoved += removedCount;
+            wave++;
+            if (timeline != null) {
+                for (int i = 0; i < removedCount; i++) {
+                    timeline.record(SparsePaperGrid.rowOf(removed[i]), SparsePaperGrid.colOf(removed[i]), wave);
+                }
+            }
+
+            // 4. Nouveaux candidats : rouleaux restants autour des cases libérées
+            long needed = (long) removedCount * 8;
+            if (candidates.length < needed) {
+                candidates = new long[(int) Math.min(needed, MAX_CANDIDATES)];
+            }
+            candidateCount = 0;
+            for (int i = 0; i < removedCount; i++) {
+                int r = SparsePaperGrid.rowOf(removed[i]);
+                int c = SparsePaperGrid.colOf(removed[i]);
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if ((dr != 0 || dc != 0) && grid.contains(r + dr, c + dc)) {
+                            // Tableau plein (taille plafonnée) : on retire les doublons pour faire de la place
+                            if (candidateCount == candidates.length) {
+                                candidateCount = sortDistinct(candidates, candidateCount);
+                            }
+                            candidates[candidateCount++] = SparsePaperGrid.pack(r + dr, c + dc);
+                        }
+                    }
+                }
+            }
+            candidateCount = sortDistinct(candidates, candidateCount);
+        }
+
+        return totalRemoved;
+    }
+
+    private static int sortDistinct(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || values[distinct - 1] != values[i]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Version hors tas de {@link #solve(char[][])} : la grille est parcourue tuile par tuile
+     * pour que les voisins consultés restent dans les tuiles déjà projetées.
+     * @param grid La grille hors tas.
+     * @return Le nombre total de rouleaux accessibles.
+     */
+    public static long solve(TiledPaperGrid grid) {
+        long accessibleCount = 0;
+
+        for (int tr = 0; tr < grid.getTileRows(); tr++) {
+            int rowEnd = Math.min(grid.getRows(), (tr + 1) * TiledPaperGrid.TILE_SIZE);
+            for (int tc = 0; tc < grid.getTileCols(); tc++) {
+                int colEnd = Math.min(grid.getCols(), (tc + 1) * TiledPaperGrid.TILE_SIZE);
+
+                for (int r = tr * TiledPaperGrid.TILE_SIZE; r < rowEnd; r++) {
+                    for (int c = tc * TiledPaperGrid.TILE_SIZE; c < colEnd; c++) {
+                        if (grid.get(r, c) == PaperState.ROLLED && grid.countNeighbors(r, c) < 4) {
+                            accessibleCount++;
+                        }
+                    }
+                }
+            }
+        }
+        return accessibleCount;
+    }
+
+    /**
+     * Version hors tas de {@link #solvePartTwo(char[][])}. Pour éviter de copier la grille,
+     * chaque vague se fait en deux passes sur place :
+     * les rouleaux accessibles sont d'abord marqués {@link PaperState#X} (ils comptent encore
+     * comme voisins, le retrait étant simultané), puis les X sont vidés.
+     * <p>Attention : la grille est modifiée.</p>
+     * @param grid La grille hors tas.
+     * @return Le nombre total de rouleaux retirés.
+     */
+    public static long solvePartTwo(TiledPaperGrid grid) {
+        return solvePartTwo(grid, null);
+    }
+
+    /**
+     * Version hors tas de {@link #solvePartTwo(char[][], RemovalTimeline)}.
+     * @param grid La grille hors tas (modifiée).
+     * @param timeline Chronologie à remplir, ou null.
+     * @return Le nombre total de rouleaux retirés.
+     */
+    public static long solvePartTwo(TiledPaperGrid grid, RemovalTimeline timeline) {
+        long totalRemoved = 0;
+        long removedInIteration;
+        int wave = 0;
+
+        do {
+            // 1. Marquer les rouleaux accessibles
+            removedInIteration = 0;
+            wave++;
+            for (int tr = 0; tr < grid.getTileRows(); tr++) {
+                int rowEnd = Math.min(grid.getRows(), (tr + 1) * TiledPaperGrid.TILE_SIZE);
+                for (int tc = 0; tc < grid.getTileCols(); tc++) {
+                    int colEnd = Math.min(grid.getCols(), (tc + 1) * TiledPaperGrid.TILE_SIZE);
+
+                    for (int r = tr * TiledPaperGrid.TILE_SIZE; r < rowEnd; r++) {
+                        for (int c = tc * TiledPaperGrid.TILE_SIZE; c < colEnd; c++) {
+                            if (grid.get(r, c) == PaperState.ROLLED && grid.countNeighbors(r, c) < 4) {
+                                grid.set(r, c, PaperState.X);
+                                removedInIteration++;
+                                if (timeline != null) {
+                                    timeline.record(r, c, wave);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            // 2. Retirer les rouleaux marqués
+            if (removedInIteration > 0) {
+                for (int tr = 0; tr < grid.getTileRows(); tr++) {
+                    int rowEnd = Math.min(grid.getRows(), (tr + 1) * TiledPaperGrid.TILE_SIZE);
+                    for (int tc = 0; tc < grid.getTileCols(); tc++) {
+                        int colEnd = Math.min(grid.getCols(), (tc + 1) * TiledPaperGrid.TILE_SIZE);
+
+                        for (int r = tr * TiledPaperGrid.TILE_SIZE; r < rowEnd; r++) {
+                            for (int c = tc * TiledPaperGrid.TILE_SIZE; c < colEnd; c++) {
+                                if (grid.get(r, c) == PaperState.X) {
+                                    grid.set(r, c, PaperState.NOTHING);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            totalRemoved += removedInIteration;
+        } while (removedInIteration > 0);
+
+        return totalRemoved;
+    }
+
+    public static void main(String[] args) throws FileReaderException, IOException {
+        boolean renderTimeline = Arrays.asList(args).contains(TIMELINE_OPTION);
+
+        // Les très grandes grilles ne tiennent pas dans le tas : on passe par les tuiles
+        Path rollsPath = Resources.resolve(ROLLS_FILE_NAME, PaperRoller.class.getClassLoader());
+        if (Resources.isOutOfCore(rollsPath)) {
+            try (TiledPaperGrid tiledGrid = TiledPaperGrid.load(rollsPath)) {
+                System.out.println("Le nombre de rouleaux de papier accessibles est : " + solve(tiledGrid));
+
+                RemovalTimeline timeline = renderTimeline && fitsTimeline(tiledGrid.getRows(), tiledGrid.getCols())
+                        ? RemovalTimeline.of(tiledGrid) : null;
+                System.out.println("Le nombre de papier accessibles est : " + solvePartTwo(tiledGrid, timeline));
+                saveTimeline(timeline);
+            }
+            return;
+        }
+
         // Charger les données de la grille
         TextFile rollsFile = loadFromRessources(ROLLS_FILE_NAME);
 
@@ -158,18 +433,51 @@ public class PaperRoller {
         }
 
         int colCount = rollsFile.getLine(0).length();
-        char[][] grid = new char[lineCount][colCount];
+        RemovalTimeline timeline;
+
+        if (isMostlyEmpty(rollsFile, colCount)) {
+            // Entrepôt presque vide : grille creuse construite directement depuis les lignes
+            SparsePaperGrid sparse = SparsePaperGrid.fromLines(rollsFile.lineViews()::iterator, lineCount, colCount);
+            System.out.println("Le nombre de rouleaux de papier accessibles est : " + solve(sparse));
+
+            timeline = renderTimeline && fitsTimeline(lineCount, colCount) ? RemovalTimeline.of(sparse) : null;
+            System.out.println("Le nombre de papier accessibles est : " + solvePartTwo(sparse, timeline));
+        } else {
+            char[][] grid = new char[lineCount][colCount];
+
+            for (int i = 0; i < lineCount; i++) {
+                // Assurez-vous que toutes les lignes ont la même longueur pour éviter ArrayOutOfBounds
+                grid[i] = rollsFile.getLine(i).toCharArray();
+            }
+
+            // Exécuter le calcul et afficher le résultat
+            int accessibleRolls = solve(grid);
+            System.out.println("Le nombre de rouleaux de papier accessibles est : " + accessibleRolls);
 
-        for (int i = 0; i < lineCount; i++) {
-            // Assurez-vous que toutes les lignes ont la même longueur pour éviter ArrayOutOfBounds
-            grid[i] = rollsFile.getLine(i).toCharArray();
+            timeline = renderTimeline ? RemovalTimeline.of(grid) : null;
+            accessibleRolls = solvePartTwo(grid, timeline);
+            System.out.println("Le nombre de papier accessibles est : " + accessibleRolls);
         }
 
-        // Exécuter le calcul et afficher le résultat
-        int accessibleRolls = solve(grid);
-        System.out.println("Le nombre de rouleaux de papier accessibles est : " + accessibleRolls);
+        saveTimeline(timeline);
+    }
 
-        accessibleRolls = solvePartTwo(grid);
-        System.out.println("Le nombre de papier accessibles est : " + accessibleRolls);
+    // Indique (avec un message sinon) si la chronologie d'une grille de cette taille tient en mémoire
+    private static boolean fitsTimeline(int rows, int cols) {
+        if ((long) rows * cols > RemovalTimeline.MAX_CELLS) {
+            System.err.println("Grid too large for a removal timeline: " + rows + "x" + cols);
+            return false;
+        }
+        return true;
+    }
+
+    private static void saveTimeline(RemovalTimeline timeline) throws IOException {
+        if (timeline == null) return;
+        try {
+            Image image = TimelineRenderer.save(timeline, new File("debug"), TIMELINE_IMAGE_NAME);
+            System.out.println("Chronologie des retraits : " + image.getFilePath());
+        } catch (ClassNotFoundException e) {
+            System.err.println("Unable to save the removal timeline: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package day4;
+
+/**
+ * Chronologie compacte des retraits : pour chaque case, la vague (à partir de 1)
+ * pendant laquelle son rouleau a été retiré, sur un {@code short}.
+ * <p>
+ * Une case vide vaut {@link #EMPTY} et un rouleau jamais retiré vaut {@link #REMAINING}.
+ * Les vagues au-delà de {@link Short#MAX_VALUE} sont saturées. La chronologie tient dans un
+ * seul tableau : la grille est limitée à {@link #MAX_CELLS} cases.
+ * </p>
+ */
+public class RemovalTimeline {
+    public static final short EMPTY = 0;
+    public static final short REMAINING = -1;
+    /** Nombre maximal de cases (taille maximale d'un tableau Java). */
+    public static final long MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private final int rows;
+    private final int cols;
+    private final short[] waves;
+    private int waveCount;
+
+    /**
+     * Crée une chronologie vide.
+     * @param rows Nombre de lignes.
+     * @param cols Nombre de colonnes.
+     * @throws IllegalArgumentException Si la grille dépasse {@link #MAX_CELLS} cases.
+     */
+    public RemovalTimeline(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Grid too large for a removal timeline: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.waves = new short[rows * cols];
+    }
+
+    /**
+     * Crée une chronologie où tous les rouleaux de la grille sont marqués {@link #REMAINING}.
+     * @param grid La grille de départ.
+     * @return La chronologie, prête à être remplie par la simulation.
+     */
+    public static RemovalTimeline of(char[][] grid) {
+        int rows = grid.length;
+        int cols = rows == 0 ? 0 : grid[0].length;
+        RemovalTimeline timeline = new RemovalTimeline(rows, cols);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < Math.min(cols, grid[r].length); c++) {
+                if (grid[r][c] == '@') {
+                    timeline.waves[r * cols + c] = REMAINING;
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Crée une chronologie où tous les rouleaux de la grille creuse sont marqués {@link #REMAINING}.
+     * @param grid La grille de départ.
+     * @return La chronologie, prête à être remplie par la simulation.
+     */
+    public static RemovalTimeline of(SparsePaperGrid grid) {
+        RemovalTimeline timeline = new RemovalTimeline(grid.getRows(), grid.getCols());
+
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int k = 0; k < grid.getRunCount(r); k++) {
+                for (int c = grid.getRunStart(r, k); c < grid.getRunEnd(r, k); c++) {
+                    timeline.waves[r * grid.getCols() + c] = REMAINING;
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Crée une chronologie où tous les rouleaux de la grille hors tas sont marqués {@link #REMAINING}.
+     * @param grid La grille de départ.
+     * @return La chronologie, prête à être remplie par la simulation.
+     * @throws IllegalArgumentException Si la grille dépasse {@link #MAX_CELLS} cases.
+     */
+    public static RemovalTimeline of(TiledPaperGrid grid) {
+        RemovalTimeline timeline = new RemovalTimeline(grid.getRows(), grid.getCols());
+
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int c = 0; c < grid.getCols(); c++) {
+                if (grid.get(r, c) == PaperState.ROLLED) {
+                    timeline.waves[r * grid.getCols() + c] = REMAINING;
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Note le retrait d'un rouleau.
+     * @param row Ligne.
+     * @param col Colonne.
+     * @param wave Numéro de la vague (à partir de 1).
+     */
+    public void record(int row, int col, int wave) {
+        waves[row * cols + col] = (short) Math.min(wave, Short.MAX_VALUE);
+        waveCount = Math.max(waveCount, wave);
+    }
+
+    public short getWave(int row, int col) {
+        return waves[row * cols + col];
+    }
+
+    /** Numéro de la dernière vague ayant retiré au moins un rouleau. */
+    public int getWaveCount() {
+        return waveCount;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+}
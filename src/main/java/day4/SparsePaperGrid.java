@@ -0,0 +1,199 @@
+package day4;
+
+import java.util.Arrays;
+
+/**
+ * Grille d'entrepôt creuse : chaque ligne ne stocke que ses plages de rouleaux ('@'),
+ * sous forme de débuts (inclus) et de fins (exclues) triés.
+ * <p>
+ * La mémoire et le temps de parcours dépendent du nombre de plages et de rouleaux,
+ * pas de la surface de l'entrepôt. Les voisins sont trouvés par recherche dichotomique
+ * dans les plages des lignes adjacentes.
+ * </p>
+ */
+public class SparsePaperGrid {
+    private static final int[] NO_RUNS = new int[0];
+
+    private final int rows;
+    private final int cols;
+    private final int[][] runStarts;
+    private final int[][] runEnds;
+    private long rollCount;
+
+    private SparsePaperGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.runStarts = new int[rows][];
+        this.runEnds = new int[rows][];
+        Arrays.fill(runStarts, NO_RUNS);
+        Arrays.fill(runEnds, NO_RUNS);
+    }
+
+    /**
+     * Construit la représentation creuse à partir des lignes d'un fichier (ex. les vues de
+     * {@code TextFile.lineViews()}), sans passer par une grille dense.
+     * @param lines Les lignes de la grille.
+     * @param rows Nombre de lignes.
+     * @param cols Nombre de colonnes.
+     * @return La grille creuse.
+     */
+    public static SparsePaperGrid fromLines(Iterable<? extends CharSequence> lines, int rows, int cols) {
+        SparsePaperGrid sparse = new SparsePaperGrid(rows, cols);
+        int r = 0;
+        for (CharSequence line : lines) {
+            if (r == rows) break;
+            sparse.setRow(r++, line, Math.min(line.length(), cols));
+        }
+        return sparse;
+    }
+
+    private void setRow(int r, CharSequence line, int length) {
+        int runs = 0;
+        for (int c = 0; c < length; c++) {
+            if (line.charAt(c) == '@' && (c == 0 || line.charAt(c - 1) != '@')) runs++;
+        }
+        if (runs == 0) return;
+
+        int[] starts = new int[runs];
+        int[] ends = new int[runs];
+        int k = 0;
+        for (int c = 0; c < length; c++) {
+            if (line.charAt(c) == '@') {
+                int start = c;
+                while (c < length && line.charAt(c) == '@') c++;
+                starts[k] = start;
+                ends[k] = c;
+                rollCount += c - start;
+                k++;
+            }
+        }
+        runStarts[r] = starts;
+        runEnds[r] = ends;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /** Nombre de rouleaux encore présents. */
+    public long getRollCount() {
+        return rollCount;
+    }
+
+    public int getRunCount(int row) {
+        return runStarts[row].length;
+    }
+
+    public int getRunStart(int row, int run) {
+        return runStarts[row][run];
+    }
+
+    /** Fin (exclue) de la plage. */
+    public int getRunEnd(int row, int run) {
+        return runEnds[row][run];
+    }
+
+    public boolean contains(int row, int col) {
+        return countInRange(row, col, col) == 1;
+    }
+
+    /**
+     * Compte les rouleaux de la ligne {@code row} entre les colonnes {@code from} et {@code to} (incluses).
+     * Les lignes hors grille sont vides.
+     */
+    public int countInRange(int row, int from, int to) {
+        if (row < 0 || row >= rows) return 0;
+        int[] starts = runStarts[row];
+        int[] ends = runEnds[row];
+
+        // Première plage dont la fin dépasse 'from'
+        int lo = 0;
+        int hi = ends.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= from) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int count = 0;
+        for (int k = lo; k < starts.length && starts[k] <= to; k++) {
+            count += Math.min(ends[k], to + 1) - Math.max(starts[k], from);
+        }
+        return count;
+    }
+
+    /**
+     * Compte les rouleaux dans les 8 positions adjacentes d'une case occupée.
+     */
+    public int countNeighbors(int row, int col) {
+        return countInRange(row - 1, col - 1, col + 1)
+                + countInRange(row, col - 1, col + 1) - 1
+                + countInRange(row + 1, col - 1, col + 1);
+    }
+
+    /**
+     * Retire un ensemble de rouleaux.
+     * @param cells Cases à retirer, encodées par {@link #pack(int, int)}, triées et sans doublon.
+     * @param count Nombre de cases utiles dans {@code cells}.
+     */
+    public void removeAll(long[] cells, int count) {
+        int i = 0;
+        while (i < count) {
+            int row = rowOf(cells[i]);
+            int j = i;
+            while (j < count && rowOf(cells[j]) == row) j++;
+            removeFromRow(row, cells, i, j);
+            rollCount -= j - i;
+            i = j;
+        }
+    }
+
+    // Soustrait les colonnes cells[from..to) (triées) aux plages de la ligne
+    private void removeFromRow(int row, long[] cells, int from, int to) {
+        int[] starts = runStarts[row];
+        int[] ends = runEnds[row];
+        // Chaque case retirée crée au plus une plage de plus
+        int[] newStarts = new int[starts.length + (to - from)];
+        int[] newEnds = new int[newStarts.length];
+        int n = 0;
+        int i = from;
+
+        for (int k = 0; k < starts.length; k++) {
+            int start = starts[k];
+            int end = ends[k];
+            while (i < to && colOf(cells[i]) < end) {
+                int col = colOf(cells[i++]);
+                if (col < start) continue;
+                if (col > start) {
+                    newStarts[n] = start;
+                    newEnds[n++] = col;
+                }
+                start = col + 1;
+            }
+            if (start < end) {
+                newStarts[n] = start;
+                newEnds[n++] = end;
+            }
+        }
+
+        runStarts[row] = n == 0 ? NO_RUNS : Arrays.copyOf(newStarts, n);
+        runEnds[row] = n == 0 ? NO_RUNS : Arrays.copyOf(newEnds, n);
+    }
+
+    /** Encode une case de façon à ce que l'ordre des {@code long} suive l'ordre ligne par ligne. */
+    public static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    public static int rowOf(long cell) {
+        return (int) (cell >>> 32);
+    }
+
+    public static int colOf(long cell) {
+        return (int) cell;
+    }
+}
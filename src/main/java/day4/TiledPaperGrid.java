@@ -0,0 +1,210 @@
+package day4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Grille d'entrepôt stockée hors du tas Java, dans un fichier projeté en mémoire.
+ * <p>
+ * Chaque case est codée sur 2 bits ({@link PaperState#ordinal()}) et la grille est
+ * découpée en tuiles carrées de {@value #TILE_SIZE} x {@value #TILE_SIZE} cases
+ * (4 Kio, soit une page), rangées les unes après les autres dans le fichier.
+ * Le fichier est projeté par grandes régions de {@value #REGION_BYTES} octets (des bandes
+ * de tuiles), à la demande : le nombre de projections reste petit et fixe (quelques dizaines
+ * pour une grille de 100 000 x 100 000), loin de la limite du système, et c'est le noyau qui
+ * décide quelles pages restent en mémoire. On peut ainsi traiter des grilles bien plus
+ * grandes que le tas.
+ * </p>
+ */
+public class TiledPaperGrid implements AutoCloseable {
+    /** Côté d'une tuile, en cases. */
+    public static final int TILE_SIZE = 128;
+
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE / 4;
+    /** Taille d'une région projetée (multiple de {@link #TILE_BYTES} : une tuile n'est jamais à cheval). */
+    private static final int REGION_BITS = 26;
+    private static final int REGION_BYTES = 1 << REGION_BITS;
+    private static final PaperState[] STATES = PaperState.values();
+
+    private final int rows;
+    private final int cols;
+    private final int tileCols;
+    private final Path backingFile;
+    private final FileChannel channel;
+    private final long fileSize;
+    /** Régions déjà projetées (null tant qu'une région n'a pas servi), gardées jusqu'à la fermeture. */
+    private final MappedByteBuffer[] regions;
+
+    /**
+     * Crée une grille vide (toutes les cases à {@link PaperState#NOTHING}),
+     * adossée à un fichier temporaire supprimé à la fermeture.
+     * @param rows Nombre de lignes.
+     * @param cols Nombre de colonnes.
+     * @throws IOException Si le fichier de stockage ne peut pas être créé.
+     */
+    public TiledPaperGrid(int rows, int cols) throws IOException {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Invalid grid size: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.tileCols = (cols + TILE_SIZE - 1) / TILE_SIZE;
+        int tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE;
+
+        this.backingFile = Files.createTempFile("paperGrid", ".bin");
+        this.channel = FileChannel.open(backingFile,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.fileSize = (long) tileRows * tileCols * TILE_BYTES;
+        // Fichier creux : les tuiles jamais écrites ne coûtent rien sur disque
+        if (fileSize > 0) {
+            channel.write(ByteBuffer.allocate(1), fileSize - 1);
+        }
+        this.regions = new MappedByteBuffer[(int) ((fileSize + REGION_BYTES - 1) >>> REGION_BITS)];
+    }
+
+    /**
+     * Charge une grille depuis un fichier texte ('@' = rouleau) sans jamais le garder
+     * entièrement en mémoire : une première passe mesure la grille, la seconde la remplit.
+     * @param source Fichier de la grille.
+     * @return La grille hors tas.
+     * @throws IOException Si le fichier ne peut pas être lu.
+     */
+    public static TiledPaperGrid load(Path source) throws IOException {
+        int rows = 0;
+        int cols = 0;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                cols = Math.max(cols, line.length());
+                rows++;
+            }
+        }
+
+        TiledPaperGrid grid = new TiledPaperGrid(rows, cols);
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.US_ASCII)) {
+            String line;
+            int r = 0;
+            while ((line = reader.readLine()) != null) {
+                for (int c = 0; c < line.length(); c++) {
+                    if (line.charAt(c) == '@') {
+                        grid.set(r, c, PaperState.ROLLED);
+                    }
+                }
+                r++;
+            }
+        } catch (IOException | RuntimeException e) {
+            grid.close();
+            throw e;
+        }
+        return grid;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public PaperState get(int row, int col) {
+        return STATES[getBits(row, col)];
+    }
+
+    public void set(int row, int col, PaperState state) {
+        long offset = byteOffset(row, col);
+        MappedByteBuffer region = region(offset);
+        int position = (int) (offset & (REGION_BYTES - 1));
+        int shift = (indexInTile(row, col) & 3) << 1;
+        int b = region.get(position);
+        region.put(position, (byte) ((b & ~(3 << shift)) | (state.ordinal() << shift)));
+    }
+
+    /**
+     * Indique si la case contient un rouleau, qu'il soit marqué pour le retrait ou non.
+     * Les cases hors grille sont considérées vides.
+     */
+    public boolean isOccupied(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) return false;
+        return getBits(row, col) != PaperState.NOTHING.ordinal();
+    }
+
+    /**
+     * Compte les rouleaux (ROLLED ou X) dans les 8 cases adjacentes.
+     */
+    public int countNeighbors(int row, int col) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isOccupied(row + dr, col + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Nombre de tuiles par ligne de tuiles. */
+    public int getTileCols() {
+        return tileCols;
+    }
+
+    /** Nombre de lignes de tuiles. */
+    public int getTileRows() {
+        return (rows + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    private int getBits(int row, int col) {
+        long offset = byteOffset(row, col);
+        int b = region(offset).get((int) (offset & (REGION_BYTES - 1)));
+        return (b >> ((indexInTile(row, col) & 3) << 1)) & 3;
+    }
+
+    private static int indexInTile(int row, int col) {
+        return (row % TILE_SIZE) * TILE_SIZE + (col % TILE_SIZE);
+    }
+
+    // Position dans le fichier de l'octet qui contient la case
+    private long byteOffset(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") outside "
+                    + rows + "x" + cols + " grid");
+        }
+        long tileIndex = (long) (row / TILE_SIZE) * tileCols + col / TILE_SIZE;
+        return tileIndex * TILE_BYTES + (indexInTile(row, col) >> 2);
+    }
+
+    private MappedByteBuffer region(long offset) {
+        int regionIndex = (int) (offset >>> REGION_BITS);
+        MappedByteBuffer region = regions[regionIndex];
+        if (region == null) {
+            long start = (long) regionIndex << REGION_BITS;
+            try {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(REGION_BYTES, fileSize - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to map region " + regionIndex, e);
+            }
+            regions[regionIndex] = region;
+        }
+        return region;
+    }
+
+    /**
+     * Libère les régions projetées et supprime le fichier de stockage.
+     */
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(regions, null);
+        channel.close();
+        Files.deleteIfExists(backingFile);
+    }
+}
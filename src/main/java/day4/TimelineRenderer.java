@@ -0,0 +1,75 @@
+package day4;
+
+import utils.files.medias.Image;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * Dessine une {@link RemovalTimeline} : un pixel par case, les rouleaux retirés tôt
+ * en bleu et les plus tardifs en rouge, les rouleaux restants en blanc.
+ * <p>
+ * Les pixels sont écrits directement dans le tableau du raster, ligne par ligne en parallèle,
+ * sans passer par {@code setRGB}.
+ * </p>
+ */
+public class TimelineRenderer {
+    private static final int EMPTY_COLOR = 0x000000;
+    private static final int REMAINING_COLOR = 0xFFFFFF;
+
+    private TimelineRenderer() {}
+
+    /**
+     * Construit l'image de la chronologie.
+     * @param timeline La chronologie des retraits.
+     * @return L'image (TYPE_INT_RGB), de la taille de la grille.
+     */
+    public static BufferedImage render(RemovalTimeline timeline) {
+        int rows = timeline.getRows();
+        int cols = timeline.getCols();
+        BufferedImage image = new BufferedImage(Math.max(cols, 1), Math.max(rows, 1), BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        // Une couleur par vague, calculée une seule fois
+        int waveCount = Math.min(timeline.getWaveCount(), Short.MAX_VALUE);
+        int[] palette = new int[waveCount + 1];
+        for (int wave = 1; wave <= waveCount; wave++) {
+            float t = waveCount == 1 ? 0f : (wave - 1) / (float) (waveCount - 1);
+            palette[wave] = Color.HSBtoRGB(0.66f * (1f - t), 1f, 1f) & 0xFFFFFF;
+        }
+
+        IntStream.range(0, rows).parallel().forEach(r -> {
+            int offset = r * cols;
+            for (int c = 0; c < cols; c++) {
+                short wave = timeline.getWave(r, c);
+                pixels[offset + c] = switch (wave) {
+                    case RemovalTimeline.EMPTY -> EMPTY_COLOR;
+                    case RemovalTimeline.REMAINING -> REMAINING_COLOR;
+                    default -> palette[wave];
+                };
+            }
+        });
+
+        return image;
+    }
+
+    /**
+     * Dessine la chronologie et l'enregistre en PNG.
+     * @param timeline La chronologie des retraits.
+     * @param folder Dossier de destination.
+     * @param fileName Nom du fichier, sans extension.
+     * @return Le fichier image écrit.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     * @throws ClassNotFoundException Propagée par {@link Image}.
+     */
+    public static Image save(RemovalTimeline timeline, File folder, String fileName)
+            throws IOException, ClassNotFoundException {
+        Image imageFile = new Image(folder, fileName, "png");
+        imageFile.write(render(timeline));
+        return imageFile;
+    }
+}
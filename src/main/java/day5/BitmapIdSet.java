@@ -0,0 +1,357 @@
+package day5;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble d'IDs frais sous forme de bitmap compressé (à la Roaring), pour un domaine borné.
+ * <p>
+ * Le domaine est découpé en blocs de 2^16 IDs. Chaque bloc non vide est stocké soit en plages
+ * (débuts et fins sur 16 bits, pour les longs intervalles), soit en bitmap de 8 Kio (pour les blocs
+ * très fragmentés) ; les blocs entièrement couverts partagent un même conteneur plein.
+ * Le bloc d'un ID s'obtient par un simple décalage, ce qui rend {@link #contains(long)}
+ * quasi constant, et la cardinalité est calculée une fois pour toutes.
+ * </p>
+ */
+public final class BitmapIdSet implements FreshnessIndex {
+    /** Nombre maximal de blocs (2^20 blocs de 2^16 IDs, soit un domaine de 2^36 IDs). */
+    public static final int MAX_CHUNKS = 1 << 20;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int WORDS = CHUNK_SIZE / 64;
+    /** Au-delà de ce nombre de plages, un bitmap (8 Kio) est plus compact (4 octets par plage). */
+    private static final int MAX_RUNS = 2048;
+
+    private static final Container FULL = new RunContainer(new char[]{0}, new char[]{(char) (CHUNK_SIZE - 1)});
+
+    /** Numéro du premier bloc représenté ({@code id >> 16}). */
+    private final long baseChunk;
+    /** Conteneurs par bloc, null pour un bloc vide. */
+    private final Container[] containers;
+    private final long freshIdCount;
+
+    private BitmapIdSet(long baseChunk, Container[] containers) {
+        this.baseChunk = baseChunk;
+        this.containers = containers;
+
+        long count = 0;
+        for (Container container : containers) {
+            if (container != null) count += container.cardinality();
+        }
+        this.freshIdCount = count;
+    }
+
+    /**
+     * Indique si les intervalles de l'index tiennent dans un domaine assez petit pour ce format.
+     */
+    public static boolean fits(IntervalIndex index) {
+        long chunks = chunkCount(index);
+        return chunks >= 0 && chunks <= MAX_CHUNKS;
+    }
+
+    /**
+     * Nombre de blocs couverts par le domaine de l'index, c'est-à-dire le coût de construction
+     * du bitmap (négatif si le domaine est trop large pour être compté).
+     */
+    public static long chunkCount(IntervalIndex index) {
+        if (index.size() == 0) return 0;
+        return (index.getEnd(index.size() - 1) >> CHUNK_BITS) - (index.getStart(0) >> CHUNK_BITS) + 1;
+    }
+
+    /**
+     * Construit le bitmap à partir des intervalles fusionnés d'un index.
+     * @param index L'index des intervalles frais.
+     * @return Le bitmap équivalent.
+     * @throws IllegalArgumentException si le domaine dépasse {@link #MAX_CHUNKS} blocs.
+     */
+    public static BitmapIdSet of(IntervalIndex index) {
+        if (!fits(index)) {
+            throw new IllegalArgumentException("ID domain too wide for a bitmap: "
+                    + index.getStart(0) + "-" + index.getEnd(index.size() - 1));
+        }
+        if (index.size() == 0) {
+            return new BitmapIdSet(0, new Container[0]);
+        }
+
+        long baseChunk = index.getStart(0) >> CHUNK_BITS;
+        int chunkCount = (int) ((index.getEnd(index.size() - 1) >> CHUNK_BITS) - baseChunk + 1);
+        Container[] containers = new Container[chunkCount];
+
+        // Plages en attente pour le bloc courant
+        long currentChunk = Long.MIN_VALUE;
+        char[] runStarts = new char[MAX_RUNS + 1];
+        char[] runEnds = new char[MAX_RUNS + 1];
+        long[] words = null;
+        int runs = 0;
+
+        for (int i = 0; i < index.size(); i++) {
+            long start = index.getStart(i);
+            long end = index.getEnd(i);
+
+            while (start <= end) {
+                long chunk = start >> CHUNK_BITS;
+                long chunkLast = (chunk << CHUNK_BITS) + CHUNK_SIZE - 1;
+                long pieceEnd = Math.min(end, chunkLast);
+
+                if (chunk != currentChunk) {
+                    if (currentChunk != Long.MIN_VALUE) {
+                        containers[(int) (currentChunk - baseChunk)] = finish(runStarts, runEnds, runs, words);
+                    }
+                    currentChunk = chunk;
+                    runs = 0;
+                    words = null;
+                }
+
+                char low = (char) (start & (CHUNK_SIZE - 1));
+                char high = (char) (pieceEnd & (CHUNK_SIZE - 1));
+                if (words != null) {
+                    setRange(words, low, high);
+                } else if (runs == MAX_RUNS) {
+                    // Trop de plages : on bascule ce bloc en bitmap
+                    words = new long[WORDS];
+                    for (int r = 0; r < runs; r++) {
+                        setRange(words, runStarts[r], runEnds[r]);
+                    }
+                    setRange(words, low, high);
+                } else {
+                    runStarts[runs] = low;
+                    runEnds[runs++] = high;
+                }
+
+                if (pieceEnd == end) break;
+                start = pieceEnd + 1;
+            }
+        }
+        containers[(int) (currentChunk - baseChunk)] = finish(runStarts, runEnds, runs, words);
+
+        return new BitmapIdSet(baseChunk, containers);
+    }
+
+    private static Container finish(char[] runStarts, char[] runEnds, int runs, long[] words) {
+        if (words != null) return new BitmapContainer(words);
+        if (runs == 1 && runStarts[0] == 0 && runEnds[0] == CHUNK_SIZE - 1) return FULL;
+        return new RunContainer(Arrays.copyOf(runStarts, runs), Arrays.copyOf(runEnds, runs));
+    }
+
+    @Override
+    public boolean contains(long id) {
+        long slot = (id >> CHUNK_BITS) - baseChunk;
+        if (slot < 0 || slot >= containers.length) return false;
+        Container container = containers[(int) slot];
+        return container != null && container.contains((char) (id & (CHUNK_SIZE - 1)));
+    }
+
+    @Override
+    public long getFreshIdCount() {
+        return freshIdCount;
+    }
+
+    /**
+     * Intersection : IDs frais dans les deux ensembles (ex. « frais dans les deux entrepôts »).
+     */
+    public BitmapIdSet and(BitmapIdSet other) {
+        long first = Math.max(baseChunk, other.baseChunk);
+        long last = Math.min(baseChunk + containers.length, other.baseChunk + other.containers.length) - 1;
+        if (first > last) {
+            return new BitmapIdSet(0, new Container[0]);
+        }
+
+        Container[] result = new Container[(int) (last - first + 1)];
+        for (long chunk = first; chunk <= last; chunk++) {
+            Container a = containers[(int) (chunk - baseChunk)];
+            Container b = other.containers[(int) (chunk - other.baseChunk)];
+            if (a == null || b == null) continue;
+
+            if (a == FULL) {
+                result[(int) (chunk - first)] = b;
+            } else if (b == FULL) {
+                result[(int) (chunk - first)] = a;
+            } else {
+                long[] words = a.toWords();
+                long[] otherWords = b.toWords();
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= otherWords[w];
+                }
+                result[(int) (chunk - first)] = fromWords(words);
+            }
+        }
+        return new BitmapIdSet(first, result);
+    }
+
+    /**
+     * Union : IDs frais dans au moins un des deux ensembles.
+     * @throws IllegalArgumentException si l'union dépasse {@link #MAX_CHUNKS} blocs.
+     */
+    public BitmapIdSet or(BitmapIdSet other) {
+        if (containers.length == 0) return other;
+        if (other.containers.length == 0) return this;
+
+        long first = Math.min(baseChunk, other.baseChunk);
+        long last = Math.max(baseChunk + containers.length, other.baseChunk + other.containers.length) - 1;
+        if (last - first + 1 > MAX_CHUNKS) {
+            throw new IllegalArgumentException("ID domain too wide for a bitmap union");
+        }
+
+        Container[] result = new Container[(int) (last - first + 1)];
+        for (long chunk = first; chunk <= last; chunk++) {
+            Container a = chunkAt(chunk);
+            Container b = other.chunkAt(chunk);
+
+            if (a == null || b == FULL) {
+                result[(int) (chunk - first)] = b;
+            } else if (b == null || a == FULL) {
+                result[(int) (chunk - first)] = a;
+            } else {
+                long[] words = a.toWords();
+                long[] otherWords = b.toWords();
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= otherWords[w];
+                }
+                result[(int) (chunk - first)] = fromWords(words);
+            }
+        }
+        return new BitmapIdSet(first, result);
+    }
+
+    private Container chunkAt(long chunk) {
+        long slot = chunk - baseChunk;
+        return slot < 0 || slot >= containers.length ? null : containers[(int) slot];
+    }
+
+    // Choisit la représentation la plus compacte pour un bloc donné sous forme de bitmap
+    private static Container fromWords(long[] words) {
+        int runs = 0;
+        long carry = 0;
+        for (long word : words) {
+            // Un bit à 1 dont le précédent est à 0 commence une plage
+            runs += Long.bitCount(word & ~((word << 1) | carry));
+            carry = word >>> 63;
+        }
+
+        if (runs == 0) return null;
+        if (runs > MAX_RUNS) return new BitmapContainer(words);
+
+        char[] starts = new char[runs];
+        char[] ends = new char[runs];
+        int r = 0;
+        int bit = 0;
+        while (bit < CHUNK_SIZE) {
+            bit = nextBit(words, bit, true);
+            if (bit == CHUNK_SIZE) break;
+            int end = nextBit(words, bit, false);
+            starts[r] = (char) bit;
+            ends[r++] = (char) (end - 1);
+            bit = end;
+        }
+        return r == 1 && starts[0] == 0 && ends[0] == CHUNK_SIZE - 1 ? FULL : new RunContainer(starts, ends);
+    }
+
+    // Position du prochain bit valant 'set' à partir de 'from' (CHUNK_SIZE si aucun)
+    private static int nextBit(long[] words, int from, boolean set) {
+        int w = from >>> 6;
+        long word = (set ? words[w] : ~words[w]) & (-1L << (from & 63));
+        while (word == 0) {
+            if (++w == WORDS) return CHUNK_SIZE;
+            word = set ? words[w] : ~words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    // Met à 1 les bits de 'from' à 'to' inclus
+    private static void setRange(long[] words, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+
+    private abstract static class Container {
+        abstract boolean contains(char low);
+
+        abstract int cardinality();
+
+        /** Copie modifiable du bloc sous forme de bitmap. */
+        abstract long[] toWords();
+    }
+
+    /** Bloc stocké en plages triées [début, fin]. */
+    private static final class RunContainer extends Container {
+        private final char[] starts;
+        private final char[] ends;
+
+        private RunContainer(char[] starts, char[] ends) {
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        @Override
+        boolean contains(char low) {
+            // Dernière plage dont le début est <= low
+            int lo = 0;
+            int hi = starts.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= low) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return hi >= 0 && low <= ends[hi];
+        }
+
+        @Override
+        int cardinality() {
+            int count = 0;
+            for (int r = 0; r < starts.length; r++) {
+                count += ends[r] - starts[r] + 1;
+            }
+            return count;
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[WORDS];
+            for (int r = 0; r < starts.length; r++) {
+                setRange(words, starts[r], ends[r]);
+            }
+            return words;
+        }
+    }
+
+    /** Bloc stocké bit à bit (2^16 bits). */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        private BitmapContainer(long[] words) {
+            this.words = words;
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            this.cardinality = count;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+    }
+}
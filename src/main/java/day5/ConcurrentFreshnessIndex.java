@@ -0,0 +1,223 @@
+package day5;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Index de fraîcheur partageable entre threads.
+ * <p>
+ * Les lecteurs interrogent un instantané immuable ({@link IntervalIndex}) sans aucun verrou.
+ * Les écrivains modifient sur place, sous verrou, le {@link FreshRangeSet} privé, puis construisent
+ * et publient l'instantané suivant : un lecteur voit toujours un état complet, jamais un intervalle
+ * à moitié fusionné. Un lot qui échoue est annulé modification par modification et ne publie rien.
+ * </p>
+ * <p>
+ * Chaque lot ne coûte donc qu'un instantané, en O(n) ; l'état des écrivains n'est jamais copié.
+ * </p>
+ */
+public class ConcurrentFreshnessIndex implements FreshnessIndex {
+    /**
+     * Modifications d'un lot, appliquées directement à l'état privé des écrivains.
+     * Utilisable seulement pendant l'appel à {@link #update(Consumer)}.
+     */
+    public static final class Batch {
+        private FreshRangeSet target;
+        /** Modifications réussies, par triplets {début, fin, 1 si ajout / 0 si expiration}. */
+        private long[] undoLog = new long[3 * 4];
+        private int undoSize;
+
+        private Batch(FreshRangeSet target) {
+            this.target = target;
+        }
+
+        /** Ajoute un intervalle frais. */
+        public void add(long start, long end) {
+            target().add(start, end);
+            log(start, end, 1);
+        }
+
+        /** Fait expirer un intervalle ajouté auparavant. */
+        public void remove(long start, long end) {
+            target().remove(start, end);
+            log(start, end, 0);
+        }
+
+        private void log(long start, long end, long added) {
+            if (undoSize + 3 > undoLog.length) {
+                undoLog = Arrays.copyOf(undoLog, undoLog.length * 2);
+            }
+            undoLog[undoSize++] = start;
+            undoLog[undoSize++] = end;
+            undoLog[undoSize++] = added;
+        }
+
+        // Défait les modifications réussies, de la dernière à la première
+        private void undo() {
+            while (undoSize > 0) {
+                long added = undoLog[--undoSize];
+                long end = undoLog[--undoSize];
+                long start = undoLog[--undoSize];
+                if (added == 1) {
+                    target.remove(start, end);
+                } else {
+                    target.add(start, end);
+                }
+            }
+        }
+
+        private FreshRangeSet target() {
+            if (target == null) {
+                throw new IllegalStateException("Batch already applied");
+            }
+            return target;
+        }
+    }
+
+    private final Object writeLock = new Object();
+    /** État complet des écrivains, modifié sur place sous writeLock. */
+    private final FreshRangeSet ranges;
+    private final AtomicReference<IntervalIndex> snapshot;
+
+    public ConcurrentFreshnessIndex() {
+        this(new FreshRangeSet());
+    }
+
+    /**
+     * Crée l'index à partir des intervalles lus par {@link IngredientSelector#getRanges}.
+     * @param ranges Intervalles {début, fin}.
+     */
+    public ConcurrentFreshnessIndex(List<Long[]> ranges) {
+        this(new FreshRangeSet(ranges));
+    }
+
+    private ConcurrentFreshnessIndex(FreshRangeSet ranges) {
+        this.ranges = ranges;
+        this.snapshot = new AtomicReference<>(ranges.toIndex());
+    }
+
+    /**
+     * Indique si un ID est frais dans l'instantané courant (sans verrou).
+     */
+    @Override
+    public boolean contains(long id) {
+        return snapshot.get().contains(id);
+    }
+
+    /** Nombre d'IDs frais dans l'instantané courant. */
+    @Override
+    public long getFreshIdCount() {
+        return snapshot.get().getFreshIdCount();
+    }
+
+    /**
+     * Renvoie l'instantané courant, pour enchaîner plusieurs requêtes sur un état cohérent.
+     */
+    public IntervalIndex snapshot() {
+        return snapshot.get();
+    }
+
+    /** Ajoute un intervalle frais et publie le nouvel instantané. */
+    public void add(long start, long end) {
+        update(batch -> batch.add(start, end));
+    }
+
+    /** Fait expirer un intervalle et publie le nouvel instantané. */
+    public void remove(long start, long end) {
+        update(batch -> batch.remove(start, end));
+    }
+
+    /**
+     * Applique un lot de modifications puis publie un seul instantané.
+     * Les écrivains sont sérialisés entre eux ; les lecteurs ne sont jamais bloqués.
+     * Si le lot lève une exception, aucune de ses modifications n'est publiée.
+     * @param changes Modifications à appliquer ; le {@link Batch} n'est plus utilisable ensuite.
+     */
+    public void update(Consumer<Batch> changes) {
+        synchronized (writeLock) {
+            Batch batch = new Batch(ranges);
+            try {
+                changes.accept(batch);
+            } catch (RuntimeException | Error e) {
+                batch.undo();
+                throw e;
+            } finally {
+                batch.target = null;
+            }
+            snapshot.set(ranges.toIndex());
+        }
+    }
+
+    /**
+     * Mesure de débit : des lecteurs interrogent l'index pendant qu'un écrivain ajoute et fait
+     * expirer des intervalles en continu. Affiche le débit de lecture pour 1..N threads.
+     * La cohérence des instantanés est vérifiée par ConcurrentFreshnessIndexTest.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final long domain = 1_000_000_000L;
+        final long permanentStart = domain + 1;
+        final long permanentEnd = domain + 1_000;
+        final long durationMillis = 1_000;
+
+        ConcurrentFreshnessIndex index = new ConcurrentFreshnessIndex();
+        index.update(batch -> {
+            batch.add(permanentStart, permanentEnd);
+            for (int i = 0; i < 100_000; i++) {
+                long start = ThreadLocalRandom.current().nextLong(domain);
+                batch.add(start, start + 1_000);
+            }
+        });
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int readers = 1; readers <= Math.max(1, cores - 1); readers *= 2) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            LongAdder queries = new LongAdder();
+            LongAdder updates = new LongAdder();
+            AtomicReference<String> failure = new AtomicReference<>();
+
+            Thread writer = new Thread(() -> {
+                while (running.get()) {
+                    long start = ThreadLocalRandom.current().nextLong(domain);
+                    index.add(start, start + 1_000);
+                    index.remove(start, start + 1_000);
+                    updates.add(2);
+                }
+            });
+
+            Thread[] readerThreads = new Thread[readers];
+            for (int r = 0; r < readers; r++) {
+                readerThreads[r] = new Thread(() -> {
+                    long local = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        for (int i = 0; i < 1_000; i++) {
+                            index.contains(random.nextLong(domain));
+                            if (!index.contains(permanentStart + random.nextLong(1_000))) {
+                                failure.compareAndSet(null, "Permanent range lost during an update");
+                            }
+                        }
+                        local += 2_000;
+                    }
+                    queries.add(local);
+                });
+            }
+
+            writer.start();
+            for (Thread t : readerThreads) t.start();
+            Thread.sleep(durationMillis);
+            running.set(false);
+            writer.join();
+            for (Thread t : readerThreads) t.join();
+
+            if (failure.get() != null) {
+                throw new IllegalStateException(failure.get());
+            }
+            System.out.printf("%2d reader(s): %,15d queries/s, %,8d updates/s%n",
+                    readers, queries.sum() * 1_000 / durationMillis, updates.sum() * 1_000 / durationMillis);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package day5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fusion externe de fichiers d'intervalles trop volumineux pour la mémoire.
+ * <p>
+ * Les fichiers texte (une ligne {@code début-fin} par intervalle, lignes vides ignorées) sont lus
+ * par blocs de taille fixe dans des {@code long[]} ; dans un fichier d'ingrédients, la lecture
+ * s'arrête à la liste d'IDs qui suit la ligne vide. Chaque bloc est trié, fusionné et
+ * déversé dans un fichier temporaire binaire ; les blocs sont ensuite fusionnés k à k en un seul
+ * passage en flux, en recollant les intervalles qui se chevauchent ou se touchent.
+ * </p>
+ * <p>
+ * Le fichier produit contient les intervalles disjoints et triés, sous forme de paires de
+ * {@code long} (début, fin) ; il se relit avec {@link #readIndex(Path)}. La mémoire utilisée
+ * dépend de la taille des blocs, pas de celle des entrées. Les fichiers temporaires sont supprimés
+ * à la fin de chaque fusion, même en cas d'échec ; le dossier temporaire créé par le constructeur
+ * par défaut l'est à la fermeture.
+ * </p>
+ */
+public class ExternalRangeMerger implements Closeable {
+    /** Nombre d'intervalles par bloc trié en mémoire (16 Mio). */
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+    /** Nombre maximal de blocs ouverts en même temps pendant une fusion. */
+    private static final int MAX_FAN_IN = 256;
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final int runSize;
+    private final Path tempDirectory;
+    /** Le dossier temporaire a été créé ici et doit être supprimé à la fermeture. */
+    private final boolean ownsTempDirectory;
+
+    public ExternalRangeMerger() throws IOException {
+        this(DEFAULT_RUN_SIZE, Files.createTempDirectory("rangeRuns"), true);
+    }
+
+    /**
+     * @param runSize Nombre d'intervalles triés en mémoire à la fois.
+     * @param tempDirectory Dossier des fichiers temporaires (conservé à la fermeture).
+     */
+    public ExternalRangeMerger(int runSize, Path tempDirectory) {
+        this(runSize, tempDirectory, false);
+    }
+
+    private ExternalRangeMerger(int runSize, Path tempDirectory, boolean ownsTempDirectory) {
+        if (runSize <= 0) {
+            throw new IllegalArgumentException("Run size must be positive: " + runSize);
+        }
+        this.runSize = runSize;
+        this.tempDirectory = tempDirectory;
+        this.ownsTempDirectory = ownsTempDirectory;
+    }
+
+    /**
+     * Supprime le dossier temporaire s'il a été créé par le constructeur par défaut.
+     * @throws IOException Si le dossier ne peut pas être supprimé.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsTempDirectory) {
+            Files.deleteIfExists(tempDirectory);
+        }
+    }
+
+    /**
+     * Fusionne les intervalles de plusieurs fichiers texte en un fichier binaire trié et disjoint.
+     * @param inputs Fichiers d'intervalles.
+     * @param output Fichier binaire de sortie.
+     * @return Le nombre d'intervalles écrits.
+     * @throws IOException Si un fichier ne peut pas être lu ou écrit.
+     */
+    public long merge(List<Path> inputs, Path output) throws IOException {
+        // Tous les fichiers temporaires, enregistrés avant d'être écrits pour ne jamais en perdre un
+        List<Path> created = new ArrayList<>();
+        try {
+            List<Path> runs = new ArrayList<>();
+            spillRuns(inputs, runs, created);
+
+            // Fusions intermédiaires si trop de blocs pour les ouvrir tous à la fois
+            while (runs.size() > MAX_FAN_IN) {
+                List<Path> nextRuns = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+                    Path merged = createRun(created);
+                    nextRuns.add(merged);
+                    mergeRuns(group, merged);
+                    for (Path run : group) Files.deleteIfExists(run);
+                }
+                runs = nextRuns;
+            }
+
+            return mergeRuns(runs, output);
+        } finally {
+            for (Path run : created) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Relit un fichier produit par {@link #merge} sous forme d'index.
+     * @param mergedFile Fichier binaire d'intervalles fusionnés.
+     * @return L'index des intervalles.
+     * @throws IOException Si le fichier ne peut pas être lu.
+     */
+    public static IntervalIndex readIndex(Path mergedFile) throws IOException {
+        long size = Files.size(mergedFile);
+        if (size % 16 != 0 || size / 16 > Integer.MAX_VALUE - 8) {
+            throw new IOException("Not a merged range file: " + mergedFile);
+        }
+
+        int n = (int) (size / 16);
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(mergedFile), IO_BUFFER_SIZE))) {
+            for (int i = 0; i < n; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+            }
+        }
+        return IntervalIndex.ofMerged(starts, ends);
+    }
+
+    // Lit les entrées par blocs de runSize intervalles, chacun trié et déversé sur disque
+    private void spillRuns(List<Path> inputs, List<Path> runs, List<Path> created) throws IOException {
+        long[] starts = new long[runSize];
+        long[] ends = new long[runSize];
+        int count = 0;
+
+        for (Path input : inputs) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(input), IO_BUFFER_SIZE)) {
+                RangeParser parser = new RangeParser(in, input);
+                while (parser.next()) {
+                    starts[count] = parser.start;
+                    ends[count++] = parser.end;
+                    if (count == runSize) {
+                        runs.add(spill(starts, ends, count, created));
+                        count = 0;
+                    }
+                }
+            }
+        }
+        if (count > 0) {
+            runs.add(spill(starts, ends, count, created));
+        }
+    }
+
+    private Path spill(long[] starts, long[] ends, int count, List<Path> created) throws IOException {
+        int merged = IntervalIndex.sortAndMerge(starts, ends, count);
+        Path run = createRun(created);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+            for (int i = 0; i < merged; i++) {
+                out.writeLong(starts[i]);
+                out.writeLong(ends[i]);
+            }
+        }
+        return run;
+    }
+
+    private Path createRun(List<Path> created) throws IOException {
+        Path run = Files.createTempFile(tempDirectory, "run", ".bin");
+        created.add(run);
+        return run;
+    }
+
+    // Fusion k-voies : tas binaire d'indices de blocs, ordonné par le début de leur intervalle courant
+    private static long mergeRuns(List<Path> runs, Path output) throws IOException {
+        int k = runs.size();
+        DataInputStream[] inputs = new DataInputStream[k];
+        long[] headStarts = new long[k];
+        long[] headEnds = new long[k];
+        int[] heap = new int[k];
+        int heapSize = 0;
+        long written = 0;
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(output), IO_BUFFER_SIZE))) {
+            for (int r = 0; r < k; r++) {
+                inputs[r] = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(runs.get(r)), IO_BUFFER_SIZE));
+                if (readHead(inputs[r], r, headStarts, headEnds)) {
+                    heap[heapSize] = r;
+                    siftUp(heap, heapSize++, headStarts);
+                }
+            }
+
+            boolean hasCurrent = false;
+            long currentStart = 0;
+            long currentEnd = 0;
+
+            while (heapSize > 0) {
+                int r = heap[0];
+                long start = headStarts[r];
+                long end = headEnds[r];
+
+                if (readHead(inputs[r], r, headStarts, headEnds)) {
+                    siftDown(heap, 0, heapSize, headStarts);
+                } else {
+                    heap[0] = heap[--heapSize];
+                    siftDown(heap, 0, heapSize, headStarts);
+                }
+
+                if (hasCurrent && (currentEnd == Long.MAX_VALUE || start <= currentEnd + 1)) {
+                    currentEnd = Math.max(currentEnd, end);
+                } else {
+                    if (hasCurrent) {
+                        out.writeLong(currentStart);
+                        out.writeLong(currentEnd);
+                        written++;
+                    }
+                    hasCurrent = true;
+                    currentStart = start;
+                    currentEnd = end;
+                }
+            }
+
+            if (hasCurrent) {
+                out.writeLong(currentStart);
+                out.writeLong(currentEnd);
+                written++;
+            }
+        } finally {
+            for (DataInputStream in : inputs) {
+                if (in != null) in.close();
+            }
+        }
+        return written;
+    }
+
+    private static boolean readHead(DataInputStream in, int r, long[] headStarts, long[] headEnds) throws IOException {
+        try {
+            headStarts[r] = in.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        headEnds[r] = in.readLong();
+        return true;
+    }
+
+    private static void siftUp(int[] heap, int i, long[] keys) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[node]) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = node;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, long[] keys) {
+        if (size == 0) return;
+        int node = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) child++;
+            if (keys[node] <= keys[heap[child]]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = node;
+    }
+
+    /**
+     * Lecteur d'intervalles {@code début-fin} octet par octet, sans créer de String par ligne.
+     * Les lignes vides sont ignorées ; un nombre seul juste après une ligne vide marque le début
+     * de la liste des IDs d'un fichier d'ingrédients et termine la lecture.
+     */
+    private static final class RangeParser {
+        private final InputStream in;
+        private final Path source;
+        private long line;
+        private long start;
+        private long end;
+        /** La ligne précédente était vide. */
+        private boolean afterBlankLine;
+
+        private RangeParser(InputStream in, Path source) {
+            this.in = in;
+            this.source = source;
+        }
+
+        /** Lit l'intervalle suivant ; false en fin de section. */
+        private boolean next() throws IOException {
+            long value = 0;
+            int digits = 0;
+            boolean inEnd = false;
+            boolean numberEnded = false; // un blanc a suivi les chiffres du nombre en cours
+            line++;
+
+            while (true) {
+                int b = in.read();
+                if (b >= '0' && b <= '9') {
+                    if (numberEnded) {
+                        throw error("unexpected character '" + (char) b + "'");
+                    }
+                    if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                        throw error("number too large");
+                    }
+                    value = value * 10 + (b - '0');
+                    digits++;
+                } else if (b == '-' && !inEnd && digits > 0) {
+                    start = value;
+                    value = 0;
+                    digits = 0;
+                    inEnd = true;
+                    numberEnded = false;
+                } else if (b == '\n' || b == -1) {
+                    if (!inEnd && digits == 0) {
+                        if (b == -1) return false;
+                        // Ligne vide : on passe à la suivante
+                        afterBlankLine = true;
+                        line++;
+                        continue;
+                    }
+                    if (!inEnd && afterBlankLine) {
+                        return false; // premier ID d'un fichier d'ingrédients
+                    }
+                    if (!inEnd || digits == 0) {
+                        throw error("expected start-end");
+                    }
+                    end = value;
+                    if (start > end) {
+                        throw error("start after end");
+                    }
+                    afterBlankLine = false;
+                    return true;
+                } else if (b == ' ' || b == '\t' || b == '\r') {
+                    // Blancs acceptés autour des nombres seulement
+                    numberEnded = digits > 0;
+                } else {
+                    throw error("unexpected character '" + (char) b + "'");
+                }
+            }
+        }
+
+        private IllegalArgumentException error(String reason) {
+            return new IllegalArgumentException("Invalid ingredient line " + line + " in " + source + ": " + reason);
+        }
+    }
+}
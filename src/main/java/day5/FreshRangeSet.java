@@ -0,0 +1,226 @@
+package day5;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ensemble modifiable d'intervalles d'IDs frais, pour des intervalles qui arrivent et expirent.
+ * <p>
+ * Les intervalles ajoutés sont découpés en segments disjoints rangés dans un arbre équilibré
+ * ({@link TreeMap}, clé = début du segment). Chaque segment connaît le nombre d'intervalles qui
+ * le couvrent, ce qui permet de faire expirer un intervalle même s'il en chevauche d'autres ;
+ * deux segments contigus de même couverture sont toujours recollés. Les intervalles ajoutés sont
+ * aussi comptés tels quels, pour refuser l'expiration d'un intervalle qui n'a jamais été ajouté.
+ * Le nombre total d'IDs frais est tenu à jour à chaque modification.
+ * </p>
+ * <p>
+ * {@link #contains(long)} est en O(log n) ; {@link #add} et {@link #remove} en O((k + 1) log n),
+ * k étant le nombre de segments recouverts par l'intervalle.
+ * </p>
+ */
+public final class FreshRangeSet implements FreshnessIndex {
+    private static final class Segment {
+        private long end;
+        private int coverage;
+
+        private Segment(long end, int coverage) {
+            this.end = end;
+            this.coverage = coverage;
+        }
+    }
+
+    /** Intervalle tel qu'il a été ajouté (clé de {@link #addedRanges}). */
+    private static final class Range {
+        private final long start;
+        private final long end;
+
+        private Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Range other && start == other.start && end == other.end;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(start) * 31 + Long.hashCode(end);
+        }
+    }
+
+    /** Segments couverts au moins une fois ; les trous ne sont pas représentés. */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    /** Nombre d'ajouts encore actifs de chaque intervalle. */
+    private final Map<Range, Integer> addedRanges = new HashMap<>();
+    private long freshIdCount;
+
+    public FreshRangeSet() {}
+
+    /**
+     * Crée l'ensemble à partir des intervalles lus par {@link IngredientSelector#getRanges}.
+     * @param ranges Intervalles {début, fin}.
+     */
+    public FreshRangeSet(List<Long[]> ranges) {
+        for (Long[] range : ranges) {
+            if (range.length != 2) {
+                throw new IllegalArgumentException("Invalid ingredient range: " + Arrays.toString(range));
+            }
+            add(range[0], range[1]);
+        }
+    }
+
+    /**
+     * Ajoute un intervalle d'IDs frais.
+     * @param start Début (inclus).
+     * @param end Fin (incluse).
+     */
+    public void add(long start, long end) {
+        checkRange(start, end);
+        addedRanges.merge(new Range(start, end), 1, Integer::sum);
+        update(start, end, 1);
+    }
+
+    /**
+     * Fait expirer un intervalle précédemment ajouté. Les IDs restent frais s'ils sont encore
+     * couverts par un autre intervalle.
+     * @param start Début (inclus).
+     * @param end Fin (incluse).
+     * @throws IllegalArgumentException si cet intervalle exact n'a pas été ajouté (ou a déjà expiré).
+     */
+    public void remove(long start, long end) {
+        checkRange(start, end);
+        Range range = new Range(start, end);
+        Integer count = addedRanges.get(range);
+        if (count == null) {
+            throw new IllegalArgumentException("Range " + start + "-" + end + " was never added");
+        }
+        if (count == 1) {
+            addedRanges.remove(range);
+        } else {
+            addedRanges.put(range, count - 1);
+        }
+        update(start, end, -1);
+    }
+
+    /**
+     * Indique si un ID appartient à l'un des intervalles.
+     */
+    @Override
+    public boolean contains(long id) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(id);
+        return entry != null && entry.getValue().end >= id;
+    }
+
+    /** Nombre total d'IDs frais, tenu à jour en continu. */
+    @Override
+    public long getFreshIdCount() {
+        return freshIdCount;
+    }
+
+    /** Nombre de segments disjoints actuellement stockés. */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Fige l'état courant dans un {@link IntervalIndex} immuable.
+     * @return L'index des intervalles fusionnés.
+     */
+    public IntervalIndex toIndex() {
+        long[] starts = new long[segments.size()];
+        long[] ends = new long[segments.size()];
+        int n = 0;
+
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            long start = entry.getKey();
+            // Deux segments contigus de couvertures différentes ne forment qu'un intervalle
+            if (n > 0 && ends[n - 1] + 1 == start) {
+                ends[n - 1] = entry.getValue().end;
+            } else {
+                starts[n] = start;
+                ends[n++] = entry.getValue().end;
+            }
+        }
+        return IntervalIndex.ofMerged(Arrays.copyOf(starts, n), Arrays.copyOf(ends, n));
+    }
+
+    private static void checkRange(long start, long end) {
+        if (start > end) {
+            throw new IllegalArgumentException("Invalid ingredient range: " + start + "-" + end);
+        }
+    }
+
+    // Applique delta à la couverture de tous les IDs de [start, end]
+    private void update(long start, long end, int delta) {
+        split(start);
+        if (end != Long.MAX_VALUE) {
+            split(end + 1);
+        }
+
+        long cursor = start;
+        while (true) {
+            Map.Entry<Long, Segment> entry = segments.ceilingEntry(cursor);
+            if (entry == null || entry.getKey() > end) {
+                // Trou final (seulement possible lors d'un ajout)
+                addGap(cursor, end);
+                break;
+            }
+
+            long segmentStart = entry.getKey();
+            Segment segment = entry.getValue();
+            if (segmentStart > cursor) {
+                addGap(cursor, segmentStart - 1);
+            }
+
+            segment.coverage += delta;
+            if (segment.coverage == 0) {
+                segments.remove(segmentStart);
+                freshIdCount -= segment.end - segmentStart + 1;
+            }
+
+            if (segment.end >= end) break;
+            cursor = segment.end + 1;
+        }
+
+        coalesce(start, end);
+    }
+
+    private void addGap(long start, long end) {
+        segments.put(start, new Segment(end, 1));
+        freshIdCount += end - start + 1;
+    }
+
+    // Coupe le segment qui contient 'at' pour qu'un segment commence exactement en 'at'
+    private void split(long at) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(at);
+        if (entry == null || entry.getKey() == at || entry.getValue().end < at) return;
+
+        Segment left = entry.getValue();
+        segments.put(at, new Segment(left.end, left.coverage));
+        left.end = at - 1;
+    }
+
+    // Recolle les segments contigus de même couverture, du voisin de gauche de 'start' à celui de droite de 'end'
+    private void coalesce(long start, long end) {
+        Map.Entry<Long, Segment> left = segments.lowerEntry(start);
+        if (left == null) left = segments.ceilingEntry(start);
+
+        while (left != null && left.getKey() <= end) {
+            Map.Entry<Long, Segment> right = segments.higherEntry(left.getKey());
+            if (right == null) return;
+
+            Segment segment = left.getValue();
+            if (segment.end + 1 == right.getKey() && segment.coverage == right.getValue().coverage) {
+                segment.end = right.getValue().end;
+                segments.remove(right.getKey());
+            } else {
+                left = right;
+            }
+        }
+    }
+}
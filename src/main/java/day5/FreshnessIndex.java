@@ -0,0 +1,17 @@
+package day5;
+
+/**
+ * Ensemble d'IDs d'ingrédients frais interrogeable par ID.
+ * Implémenté par les différents index (intervalles triés, arbre modifiable, bitmap compressé).
+ */
+public interface FreshnessIndex {
+    /**
+     * Indique si un ID est frais.
+     * @param id L'ID de l'ingrédient.
+     * @return true si l'ID appartient à l'un des intervalles frais.
+     */
+    boolean contains(long id);
+
+    /** Nombre total d'IDs frais (partie 2). */
+    long getFreshIdCount();
+}
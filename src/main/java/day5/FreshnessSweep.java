@@ -0,0 +1,193 @@
+package day5;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Vérification en bloc d'une liste d'IDs connue à l'avance.
+ * <p>
+ * Plutôt qu'une recherche par ID, les IDs sont triés (en parallèle, avec leur position d'origine)
+ * puis parcourus en même temps que les intervalles fusionnés de l'{@link IntervalIndex} :
+ * une seule passe linéaire après le tri, sans aucun objet par ID.
+ * </p>
+ */
+public final class FreshnessSweep {
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+    /** IDs frais, triés par ordre croissant (les doublons sont conservés). */
+    private final long[] freshIds;
+    /** Position d'origine de chaque ID frais dans la liste fournie. */
+    private final int[] positions;
+    /** Nombre d'IDs de la liste fournie. */
+    private final int inputLength;
+
+    private FreshnessSweep(long[] freshIds, int[] positions, int inputLength) {
+        this.freshIds = freshIds;
+        this.positions = positions;
+        this.inputLength = inputLength;
+    }
+
+    /**
+     * Trie les IDs et les confronte aux intervalles de l'index en un seul balayage.
+     * @param index Index des intervalles frais.
+     * @param ids IDs à vérifier (non modifiés).
+     * @return Le résultat du balayage.
+     */
+    public static FreshnessSweep run(IntervalIndex index, long[] ids) {
+        int n = ids.length;
+        long[] sortedIds = ids.clone();
+        int[] sortedPositions = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedPositions[i] = i;
+        }
+        ForkJoinPool.commonPool().invoke(
+                new CoSort(sortedIds, sortedPositions, new long[n], new int[n], 0, n));
+
+        // Balayage : l'intervalle courant ne recule jamais
+        int fresh = 0;
+        int range = 0;
+        for (int i = 0; i < n; i++) {
+            long id = sortedIds[i];
+            while (range < index.size() && index.getEnd(range) < id) {
+                range++;
+            }
+            if (range == index.size()) break;
+
+            if (index.getStart(range) <= id) {
+                // Compactage en place : fresh <= i
+                sortedIds[fresh] = id;
+                sortedPositions[fresh] = sortedPositions[i];
+                fresh++;
+            }
+        }
+
+        return new FreshnessSweep(Arrays.copyOf(sortedIds, fresh),
+                Arrays.copyOf(sortedPositions, fresh), n);
+    }
+
+    /** Nombre d'IDs frais. */
+    public int getFreshCount() {
+        return freshIds.length;
+    }
+
+    /** IDs frais, par ordre croissant. */
+    public long[] getFreshIds() {
+        return freshIds.clone();
+    }
+
+    /**
+     * IDs frais dans l'ordre de la liste fournie : les positions d'origine étant distinctes et
+     * inférieures à la taille de la liste, les IDs y sont dispersés puis compactés, en O(n) sans tri.
+     */
+    public long[] getFreshIdsInInputOrder() {
+        long[] byPosition = new long[inputLength];
+        boolean[] isFresh = new boolean[inputLength];
+        for (int i = 0; i < freshIds.length; i++) {
+            byPosition[positions[i]] = freshIds[i];
+            isFresh[positions[i]] = true;
+        }
+
+        long[] ids = new long[freshIds.length];
+        int fresh = 0;
+        for (int position = 0; position < inputLength; position++) {
+            if (isFresh[position]) {
+                ids[fresh++] = byPosition[position];
+            }
+        }
+        return ids;
+    }
+
+    /** Positions d'origine des IDs frais, dans le même ordre que {@link #getFreshIds()}. */
+    public int[] getPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * Tri fusion stable et parallèle des clés, qui déplace les positions avec elles.
+     */
+    private static final class CoSort extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+        private final int[] positions;
+        private final long[] keyBuffer;
+        private final int[] positionBuffer;
+        private final int from;
+        private final int to;
+
+        CoSort(long[] keys, int[] positions, long[] keyBuffer, int[] positionBuffer, int from, int to) {
+            this.keys = keys;
+            this.positions = positions;
+            this.keyBuffer = keyBuffer;
+            this.positionBuffer = positionBuffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort();
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            CoSort left = new CoSort(keys, positions, keyBuffer, positionBuffer, from, mid);
+            CoSort right = new CoSort(keys, positions, keyBuffer, positionBuffer, mid, to);
+            if (to - from > PARALLEL_SORT_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+
+            if (keys[mid - 1] > keys[mid]) {
+                merge(mid);
+            }
+        }
+
+        private void insertionSort() {
+            for (int i = from + 1; i < to; i++) {
+                long key = keys[i];
+                int position = positions[i];
+                int j = i - 1;
+                while (j >= from && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    positions[j + 1] = positions[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                positions[j + 1] = position;
+            }
+        }
+
+        private void merge(int mid) {
+            System.arraycopy(keys, from, keyBuffer, from, to - from);
+            System.arraycopy(positions, from, positionBuffer, from, to - from);
+
+            int i = from;
+            int j = mid;
+            int k = from;
+            while (i < mid && j < to) {
+                // <= : à clé égale, la moitié gauche passe d'abord (tri stable)
+                if (keyBuffer[i] <= keyBuffer[j]) {
+                    keys[k] = keyBuffer[i];
+                    positions[k++] = positionBuffer[i++];
+                } else {
+                    keys[k] = keyBuffer[j];
+                    positions[k++] = positionBuffer[j++];
+                }
+            }
+            while (i < mid) {
+                keys[k] = keyBuffer[i];
+                positions[k++] = positionBuffer[i++];
+            }
+            while (j < to) {
+                keys[k] = keyBuffer[j];
+                positions[k++] = positionBuffer[j++];
+            }
+        }
+    }
+}
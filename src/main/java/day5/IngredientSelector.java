@@ -5,6 +5,7 @@ import utils.fileReaders.TextFileReader;
 import utils.files.TextFile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class IngredientSelector {
@@ -36,12 +37,12 @@ public class IngredientSelector {
         return ranges;
     }
 
-    public static List<Long> getIds(TextFile textFile, long firstIdIndex) throws FileReaderException {
-        List<Long> ids = new ArrayList<>();
-        for (long i = firstIdIndex ; i < textFile.getLineCount(); i++) {
-            ids.add(Long.parseLong(textFile.getLine((int) i)));
-        }
-        return ids;
+    public static long[] getIds(TextFile textFile, long firstIdIndex) throws FileReaderException {
+        return textFile.lines()
+                .skip(firstIdIndex)
+                .parallel()
+                .mapToLong(Long::parseLong)
+                .toArray();
     }
 
     public static boolean isInsideRanges(List<Long[]> ranges, long id) {
@@ -58,6 +59,38 @@ public class IngredientSelector {
         return false;
     }
 
+    public static int countFresh(FreshnessIndex index, long[] ids) {
+        int count = 0;
+        for (long id : ids) {
+            if (index.contains(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * IDs frais, dans l'ordre de la liste fournie.
+     */
+    public static long[] getFreshIds(FreshnessIndex index, long[] ids) {
+        long[] fresh = new long[countFresh(index, ids)];
+        int count = 0;
+        for (long id : ids) {
+            if (index.contains(id)) {
+                fresh[count++] = id;
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Le bitmap est préférable quand il tient en mémoire et que sa construction (un bloc de
+     * 2^16 IDs à la fois) ne coûte pas plus que le tri des IDs fait par {@link FreshnessSweep}.
+     */
+    public static boolean useBitmapIndex(IntervalIndex index, long[] ids) {
+        return BitmapIdSet.fits(index) && BitmapIdSet.chunkCount(index) <= ids.length;
+    }
+
     public static boolean mergeIntervals(List<Long[]> ranges) {
         if (ranges.size() <= 1) {
             return false; // rien à fusionner
@@ -106,26 +139,25 @@ public class IngredientSelector {
         TextFile freshIngredientsIdFile = loadFromRessources(INGREDIENTS_IDS_FILE_NAME);
         List<Long[]> ranges = getRanges(freshIngredientsIdFile);
         long firstIndex = ranges.removeLast()[0] + 1;
-        List<Long> ids = getIds(freshIngredientsIdFile, firstIndex);
+        long[] ids = getIds(freshIngredientsIdFile, firstIndex);
+
+        IntervalIndex index = IntervalIndex.of(ranges);
 
         // Part 1
-        List<Long> freshIds = new ArrayList<>();
-        for (long id : ids) {
-            if (isInsideRanges(ranges, id)) {
-                freshIds.add(id);
-                //System.out.println("Found id: " + id);
-            }
+        long[] freshIds;
+        if (useBitmapIndex(index, ids)) {
+            // Domaine dense et borné : une recherche quasi constante par ID, sans tri
+            freshIds = getFreshIds(BitmapIdSet.of(index), ids);
+        } else {
+            // Tous les IDs sont connus, un seul balayage suffit
+            freshIds = FreshnessSweep.run(index, ids).getFreshIdsInInputOrder();
         }
 
-        System.out.println("Fresh ids : " + freshIds);
-        System.out.println("Number of fresh ingredients : " + freshIds.size());
+        System.out.println("Fresh ids : " + Arrays.toString(freshIds));
+        System.out.println("Number of fresh ingredients : " + freshIds.length);
 
         // Part 2
-        mergeIntervals(ranges);
-        long numberOfFreshIds = 0;
-        for (Long[] range : ranges) {
-            numberOfFreshIds += getNumberOfIdsFromRange(range);
-        }
+        long numberOfFreshIds = index.getFreshIdCount();
         System.out.println("Number of fresh ingredients : " + numberOfFreshIds);
     }
 }
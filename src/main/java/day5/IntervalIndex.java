@@ -0,0 +1,172 @@
+package day5;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index immuable d'intervalles d'IDs frais [début, fin] (bornes incluses).
+ * <p>
+ * Les intervalles sont fusionnés à la construction puis rangés dans des {@code long[]} en ordre
+ * d'Eytzinger (disposition d'un tas binaire), ce qui rend la recherche d'un ID en O(log n)
+ * sans branchement imprévisible et avec des accès mémoire proches pour les premiers niveaux.
+ * </p>
+ */
+public final class IntervalIndex implements FreshnessIndex {
+    /** Intervalles fusionnés, triés (ordre naturel). */
+    private final long[] starts;
+    private final long[] ends;
+
+    /** Les mêmes intervalles, en ordre d'Eytzinger (indices à partir de 1). */
+    private final long[] eytzingerStarts;
+    private final long[] eytzingerEnds;
+
+    private final long freshIdCount;
+
+    private IntervalIndex(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+
+        int n = starts.length;
+        this.eytzingerStarts = new long[n + 1];
+        this.eytzingerEnds = new long[n + 1];
+        toEytzinger(starts, eytzingerStarts, 0, 1);
+        toEytzinger(ends, eytzingerEnds, 0, 1);
+
+        long count = 0;
+        for (int i = 0; i < n; i++) {
+            count += ends[i] - starts[i] + 1;
+        }
+        this.freshIdCount = count;
+    }
+
+    /**
+     * Construit l'index à partir des intervalles lus par {@link IngredientSelector#getRanges}.
+     * @param ranges Intervalles {début, fin} (non modifiés).
+     * @return L'index.
+     */
+    public static IntervalIndex of(List<Long[]> ranges) {
+        long[] starts = new long[ranges.size()];
+        long[] ends = new long[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            Long[] range = ranges.get(i);
+            if (range.length != 2) {
+                throw new IllegalArgumentException("Invalid ingredient range: " + Arrays.toString(range));
+            }
+            starts[i] = range[0];
+            ends[i] = range[1];
+        }
+        return of(starts, ends);
+    }
+
+    /**
+     * Construit l'index à partir d'intervalles quelconques (non triés, chevauchants).
+     * Les tableaux sont copiés.
+     * @param starts Débuts des intervalles.
+     * @param ends Fins des intervalles (incluses), même longueur que {@code starts}.
+     * @return L'index.
+     */
+    public static IntervalIndex of(long[] starts, long[] ends) {
+        if (starts.length != ends.length) {
+            throw new IllegalArgumentException("Got " + starts.length + " starts but " + ends.length + " ends");
+        }
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] > ends[i]) {
+                throw new IllegalArgumentException("Invalid ingredient range: " + starts[i] + "-" + ends[i]);
+            }
+        }
+
+        long[] sortedStarts = starts.clone();
+        long[] sortedEnds = ends.clone();
+        int merged = sortAndMerge(sortedStarts, sortedEnds, sortedStarts.length);
+
+        return new IntervalIndex(Arrays.copyOf(sortedStarts, merged), Arrays.copyOf(sortedEnds, merged));
+    }
+
+    /**
+     * Trie et fusionne sur place les {@code n} premiers intervalles : en sortie, les {@code n'}
+     * premières cases (valeur de retour) contiennent les intervalles disjoints, triés.
+     */
+    static int sortAndMerge(long[] starts, long[] ends, int n) {
+        // Pour une union d'intervalles, trier débuts et fins séparément suffit :
+        // il y a un trou entre les positions i et i + 1 ssi starts[i + 1] > ends[i] + 1
+        Arrays.parallelSort(starts, 0, n);
+        Arrays.parallelSort(ends, 0, n);
+
+        int merged = 0;
+        int i = 0;
+        while (i < n) {
+            long start = starts[i];
+            while (i + 1 < n && (ends[i] == Long.MAX_VALUE || starts[i + 1] <= ends[i] + 1)) {
+                i++;
+            }
+            // Écriture en place : merged <= i, les cases réécrites ont déjà été lues
+            starts[merged] = start;
+            ends[merged] = ends[i];
+            merged++;
+            i++;
+        }
+        return merged;
+    }
+
+    /**
+     * Construit l'index à partir d'intervalles déjà triés et disjoints
+     * (par exemple relus depuis un fichier fusionné). Les tableaux ne sont pas copiés.
+     */
+    static IntervalIndex ofMerged(long[] starts, long[] ends) {
+        for (int i = 1; i < starts.length; i++) {
+            if (starts[i] <= ends[i - 1]) {
+                throw new IllegalArgumentException("Ranges are not merged at position " + i);
+            }
+        }
+        return new IntervalIndex(starts, ends);
+    }
+
+    // Remplit dst (indices à partir de 1) par un parcours infixe de l'arbre implicite
+    private static int toEytzinger(long[] src, long[] dst, int i, int k) {
+        if (k < dst.length) {
+            i = toEytzinger(src, dst, i, 2 * k);
+            dst[k] = src[i++];
+            i = toEytzinger(src, dst, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    /**
+     * Indique si un ID appartient à l'un des intervalles.
+     * @param id L'ID de l'ingrédient.
+     * @return true si l'ingrédient est frais.
+     */
+    @Override
+    public boolean contains(long id) {
+        // Descente jusqu'à la feuille : on cherche le premier intervalle dont la fin est >= id
+        int k = 1;
+        int n = eytzingerEnds.length;
+        while (k < n) {
+            k = 2 * k + (eytzingerEnds[k] < id ? 1 : 0);
+        }
+        // Remonter les virages à droite pour retrouver ce premier intervalle (0 : aucun)
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k != 0 && eytzingerStarts[k] <= id;
+    }
+
+    /** Nombre d'intervalles après fusion. */
+    public int size() {
+        return starts.length;
+    }
+
+    /** Début du i-ème intervalle fusionné (ordre croissant). */
+    public long getStart(int i) {
+        return starts[i];
+    }
+
+    /** Fin (incluse) du i-ème intervalle fusionné (ordre croissant). */
+    public long getEnd(int i) {
+        return ends[i];
+    }
+
+    /** Nombre total d'IDs couverts par les intervalles (partie 2). */
+    @Override
+    public long getFreshIdCount() {
+        return freshIdCount;
+    }
+}
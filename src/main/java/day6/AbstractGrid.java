@@ -0,0 +1,152 @@
+package day6;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Dimensions and index math shared by the flat grids (see {@link LongGrid}).
+ * Grids are row-major.
+ */
+public abstract class AbstractGrid {
+    protected final int numCols; // number of columns
+    protected final int numRows; // number of rows
+
+    protected AbstractGrid(int cols, int rows) {
+        if (cols < 0 || rows < 0) {
+            throw new IllegalArgumentException("Invalid grid size: " + cols + "x" + rows);
+        }
+        numCols = cols;
+        numRows = rows;
+    }
+
+    protected int getIndex(int row, int col) {
+        return row * numCols + col;
+    }
+
+    protected int size() {
+        return numCols * numRows;
+    }
+
+    public int getNumCols() {
+        return numCols;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    protected void checkRowBuffer(int length) {
+        if (length < numCols) {
+            throw new IllegalArgumentException("Buffer of length " + length + " too small for " + numCols + " columns");
+        }
+    }
+
+    protected void checkColumnBuffer(int length) {
+        if (length < numRows) {
+            throw new IllegalArgumentException("Buffer of length " + length + " too small for " + numRows + " rows");
+        }
+    }
+
+    /**
+     * Streams over the rows (or columns) of this grid. Each element is a cursor that is moved
+     * from one line to the next instead of being reallocated: it must not be kept once the
+     * consumer returns. The spliterator is SIZED and splits by index range, so the stream can
+     * be made {@code parallel()} (every split gets its own cursor).
+     *
+     * @param column  true to stream over the columns, false for the rows.
+     * @param cursors Creates a new cursor, once per split.
+     */
+    protected <L extends LineCursor> Stream<L> lines(boolean column, Supplier<L> cursors) {
+        return StreamSupport.stream(new LineSpliterator<>(cursors, 0, column ? numCols : numRows), false);
+    }
+
+    /**
+     * Movable view over one row or one column of the enclosing grid.
+     */
+    public abstract class LineCursor {
+        private final boolean column;
+        private int index;
+
+        protected LineCursor(boolean column) {
+            this.column = column;
+        }
+
+        /** Index of the row (or column) currently viewed. */
+        public int index() {
+            return index;
+        }
+
+        public boolean isColumn() {
+            return column;
+        }
+
+        /** Number of cells in the line. */
+        public int length() {
+            return column ? numRows : numCols;
+        }
+
+        // Position in the grid storage of the i-th cell of the line
+        protected int storageIndex(int i) {
+            return column ? getIndex(i, index) : getIndex(index, i);
+        }
+
+        void moveTo(int index) {
+            this.index = index;
+        }
+    }
+
+    private final class LineSpliterator<L extends LineCursor> implements Spliterator<L> {
+        private final Supplier<L> cursors;
+        private L cursor; // created on first use
+        private int from;
+        private final int to;
+
+        private LineSpliterator(Supplier<L> cursors, int from, int to) {
+            this.cursors = cursors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super L> action) {
+            if (from >= to) return false;
+            if (cursor == null) cursor = cursors.get();
+            cursor.moveTo(from++);
+            action.accept(cursor);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super L> action) {
+            if (from >= to) return;
+            if (cursor == null) cursor = cursors.get();
+            while (from < to) {
+                cursor.moveTo(from++);
+                action.accept(cursor);
+            }
+        }
+
+        @Override
+        public Spliterator<L> trySplit() {
+            int mid = (from + to) >>> 1;
+            if (mid <= from) return null;
+            // La première moitié part dans le nouveau spliterator (ordre conservé)
+            LineSpliterator<L> prefix = new LineSpliterator<>(cursors, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
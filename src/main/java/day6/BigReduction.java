@@ -0,0 +1,96 @@
+package day6;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Balanced reductions for problems whose result no longer fits in a {@code long}.
+ * <p>
+ * Folding a product from left to right multiplies an ever-growing accumulator by small factors,
+ * which is quadratic in the size of the result. Here the operands are reduced as a binary tree
+ * (product tree for multiplications, pairwise summation for additions): each multiplication
+ * works on operands of similar size, and the subtrees of large reductions run in parallel.
+ * </p>
+ */
+final class BigReduction {
+    /** Leaves are folded sequentially, on {@code long} as long as possible. */
+    private static final int LEAF_SIZE = 16;
+    /** Below this number of operands, subtrees are not forked. */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private BigReduction() {}
+
+    static BigInteger product(long[] numbers, int from, int to) {
+        return ForkJoinPool.commonPool().invoke(new Reduce(numbers, null, from, to, true));
+    }
+
+    static BigInteger product(BigInteger[] numbers) {
+        return ForkJoinPool.commonPool().invoke(new Reduce(null, numbers, 0, numbers.length, true));
+    }
+
+    static BigInteger sum(long[] numbers, int from, int to) {
+        return ForkJoinPool.commonPool().invoke(new Reduce(numbers, null, from, to, false));
+    }
+
+    static BigInteger sum(BigInteger[] numbers) {
+        return ForkJoinPool.commonPool().invoke(new Reduce(null, numbers, 0, numbers.length, false));
+    }
+
+    /**
+     * Reduction of {@code [from, to)}, from either a {@code long[]} or a {@code BigInteger[]}.
+     */
+    private static final class Reduce extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] numbers;
+        private final BigInteger[] bigNumbers;
+        private final int from;
+        private final int to;
+        private final boolean multiply;
+
+        Reduce(long[] numbers, BigInteger[] bigNumbers, int from, int to, boolean multiply) {
+            this.numbers = numbers;
+            this.bigNumbers = bigNumbers;
+            this.from = from;
+            this.to = to;
+            this.multiply = multiply;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (to - from <= LEAF_SIZE) {
+                return leaf();
+            }
+
+            int mid = (from + to) >>> 1;
+            Reduce left = new Reduce(numbers, bigNumbers, from, mid, multiply);
+            Reduce right = new Reduce(numbers, bigNumbers, mid, to, multiply);
+            BigInteger leftResult;
+            BigInteger rightResult;
+            if (to - from >= PARALLEL_THRESHOLD) {
+                left.fork();
+                rightResult = right.compute();
+                leftResult = left.join();
+            } else {
+                leftResult = left.compute();
+                rightResult = right.compute();
+            }
+            return multiply ? leftResult.multiply(rightResult) : leftResult.add(rightResult);
+        }
+
+        private BigInteger leaf() {
+            ExactAccumulator accumulator = new ExactAccumulator(multiply ? 1 : 0);
+            for (int i = from; i < to; i++) {
+                if (numbers != null) {
+                    if (multiply) accumulator.multiply(numbers[i]);
+                    else accumulator.add(numbers[i]);
+                } else {
+                    if (multiply) accumulator.multiply(bigNumbers[i]);
+                    else accumulator.add(bigNumbers[i]);
+                }
+            }
+            return accumulator.toBigInteger();
+        }
+    }
+}
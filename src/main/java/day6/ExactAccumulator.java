@@ -0,0 +1,143 @@
+package day6;
+
+import java.math.BigInteger;
+
+/**
+ * Mutable exact integer: computes on a primitive {@code long} with the {@code Math.*Exact}
+ * operations and switches to {@link BigInteger} only when a result overflows.
+ * As long as the value fits in 64 bits, no operation allocates.
+ */
+public final class ExactAccumulator {
+    private long value;
+    private BigInteger big; // null tant que la valeur tient dans un long
+
+    public ExactAccumulator() {
+        this(0);
+    }
+
+    public ExactAccumulator(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Sets the value, going back to the {@code long} representation.
+     */
+    public ExactAccumulator reset(long value) {
+        this.value = value;
+        this.big = null;
+        return this;
+    }
+
+    /**
+     * Sets the value; it is stored as a {@code long} whenever it fits.
+     */
+    public ExactAccumulator reset(BigInteger value) {
+        if (value.bitLength() < Long.SIZE) {
+            return reset(value.longValue());
+        }
+        this.big = value;
+        return this;
+    }
+
+    public ExactAccumulator add(long operand) {
+        if (big == null) {
+            try {
+                value = Math.addExact(value, operand);
+                return this;
+            } catch (ArithmeticException e) {
+                big = BigInteger.valueOf(value);
+            }
+        }
+        return reset(big.add(BigInteger.valueOf(operand)));
+    }
+
+    public ExactAccumulator subtract(long operand) {
+        if (big == null) {
+            try {
+                value = Math.subtractExact(value, operand);
+                return this;
+            } catch (ArithmeticException e) {
+                big = BigInteger.valueOf(value);
+            }
+        }
+        return reset(big.subtract(BigInteger.valueOf(operand)));
+    }
+
+    public ExactAccumulator multiply(long operand) {
+        if (big == null) {
+            try {
+                value = Math.multiplyExact(value, operand);
+                return this;
+            } catch (ArithmeticException e) {
+                big = BigInteger.valueOf(value);
+            }
+        }
+        return reset(big.multiply(BigInteger.valueOf(operand)));
+    }
+
+    /**
+     * Integer division (rounded toward zero, like {@code /}).
+     *
+     * @throws ArithmeticException If the divisor is zero.
+     */
+    public ExactAccumulator divide(long operand) {
+        if (big == null) {
+            // Seul Long.MIN_VALUE / -1 dépasse
+            if (value != Long.MIN_VALUE || operand != -1) {
+                value = value / operand;
+                return this;
+            }
+            big = BigInteger.valueOf(value);
+        }
+        return reset(big.divide(BigInteger.valueOf(operand)));
+    }
+
+    public ExactAccumulator add(BigInteger operand) {
+        if (operand.bitLength() < Long.SIZE) return add(operand.longValue());
+        return reset(toBigInteger().add(operand));
+    }
+
+    public ExactAccumulator subtract(BigInteger operand) {
+        if (operand.bitLength() < Long.SIZE) return subtract(operand.longValue());
+        return reset(toBigInteger().subtract(operand));
+    }
+
+    public ExactAccumulator multiply(BigInteger operand) {
+        if (operand.bitLength() < Long.SIZE) return multiply(operand.longValue());
+        return reset(toBigInteger().multiply(operand));
+    }
+
+    public ExactAccumulator divide(BigInteger operand) {
+        if (operand.bitLength() < Long.SIZE) return divide(operand.longValue());
+        return reset(toBigInteger().divide(operand));
+    }
+
+    public ExactAccumulator add(ExactAccumulator other) {
+        return other.big == null ? add(other.value) : add(other.big);
+    }
+
+    /** Tells whether the value currently fits in a {@code long}. */
+    public boolean fitsInLong() {
+        return big == null;
+    }
+
+    /**
+     * @return The value as a {@code long}.
+     * @throws ArithmeticException If the value does not fit in a {@code long}.
+     */
+    public long longValueExact() {
+        if (big != null) {
+            throw new ArithmeticException("Value does not fit in a long: " + big);
+        }
+        return value;
+    }
+
+    public BigInteger toBigInteger() {
+        return big != null ? big : BigInteger.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return big != null ? big.toString() : Long.toString(value);
+    }
+}
@@ -0,0 +1,187 @@
+package day6;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Grid of primitive {@code long} values, stored in a flat row-major {@code long[]}.
+ * Rows and columns can be copied into caller-provided buffers to avoid allocating on every
+ * access, or streamed with {@link #rows()} and {@link #columns()}.
+ */
+public class LongGrid extends AbstractGrid {
+    // Côté des tuiles de la transposition (64 x 64 longs tiennent dans le cache L2)
+    private static final int TRANSPOSE_TILE = 64;
+    // Au-delà de ce nombre de cases, les bandes de tuiles sont transposées en parallèle
+    private static final int PARALLEL_TRANSPOSE_THRESHOLD = 1 << 16;
+
+    private final long[] grid;
+
+    LongGrid(int cols, int rows) {
+        super(cols, rows);
+        grid = new long[numCols * numRows];
+    }
+
+    // Reprend directement un stockage ligne par ligne déjà rempli ; les cases au-delà de cols * rows sont ignorées
+    LongGrid(int cols, int rows, long[] storage) {
+        super(cols, rows);
+        if (storage.length < numCols * numRows) {
+            throw new IllegalArgumentException("Storage of length " + storage.length + " too small for " + cols + "x" + rows);
+        }
+        grid = storage;
+    }
+
+    LongGrid(long[][] array) {
+        // array.length = rows
+        // array[0].length = cols
+        this(array.length == 0 ? 0 : array[0].length, array.length);
+
+        for (int row = 0; row < numRows; row++) {
+            System.arraycopy(array[row], 0, grid, getIndex(row, 0), numCols);
+        }
+    }
+
+    /**
+     * Materializes the transposed grid in a new row-major storage.
+     * The copy is done tile by tile so that both the reads and the writes stay in cache;
+     * large grids are processed one band of tiles per task, in parallel.
+     */
+    public LongGrid transpose() {
+        // New grid : inverted dimensions
+        return new LongGrid(numRows, numCols, transposedStorage());
+    }
+
+    // Cases rangées colonne par colonne : la colonne col occupe [col * numRows, (col + 1) * numRows)
+    long[] transposedStorage() {
+        long[] target = new long[size()];
+
+        int bands = (numRows + TRANSPOSE_TILE - 1) / TRANSPOSE_TILE;
+        IntStream bandStream = IntStream.range(0, bands);
+        if (size() >= PARALLEL_TRANSPOSE_THRESHOLD) {
+            bandStream = bandStream.parallel();
+        }
+
+        bandStream.forEach(band -> {
+            int rowStart = band * TRANSPOSE_TILE;
+            int rowEnd = Math.min(numRows, rowStart + TRANSPOSE_TILE);
+
+            for (int colStart = 0; colStart < numCols; colStart += TRANSPOSE_TILE) {
+                int colEnd = Math.min(numCols, colStart + TRANSPOSE_TILE);
+
+                for (int row = rowStart; row < rowEnd; row++) {
+                    for (int col = colStart; col < colEnd; col++) {
+                        // (row, col) devient (col, row) : ligne col de longueur numRows
+                        target[col * numRows + row] = grid[getIndex(row, col)];
+                    }
+                }
+            }
+        });
+
+        return target;
+    }
+
+    public long get(int row, int col) {
+        return grid[getIndex(row, col)];
+    }
+
+    public void set(int row, int col, long value) {
+        grid[getIndex(row, col)] = value;
+    }
+
+    public long[] getRow(int row) {
+        return getRow(row, new long[numCols]);
+    }
+
+    /**
+     * Copies a row into the given buffer.
+     *
+     * @param row    Row index.
+     * @param buffer Destination, with at least {@link #getNumCols()} elements.
+     * @return The buffer.
+     */
+    public long[] getRow(int row, long[] buffer) {
+        checkRowBuffer(buffer.length);
+        System.arraycopy(grid, getIndex(row, 0), buffer, 0, numCols);
+        return buffer;
+    }
+
+    public long[] getColumn(int col) {
+        return getColumn(col, new long[numRows]);
+    }
+
+    /**
+     * Copies a column into the given buffer.
+     *
+     * @param col    Column index.
+     * @param buffer Destination, with at least {@link #getNumRows()} elements.
+     * @return The buffer.
+     */
+    public long[] getColumn(int col, long[] buffer) {
+        checkColumnBuffer(buffer.length);
+        for (int row = 0; row < numRows; row++) {
+            buffer[row] = grid[getIndex(row, col)];
+        }
+        return buffer;
+    }
+
+    /**
+     * Fills the whole grid with the same value.
+     */
+    public void fill(long value) {
+        Arrays.fill(grid, 0, size(), value);
+    }
+
+    /**
+     * Streams over the rows; see {@link AbstractGrid#lines} for the cursor contract.
+     */
+    public Stream<Line> rows() {
+        return lines(false, () -> new Line(false));
+    }
+
+    /**
+     * Streams over the columns; see {@link AbstractGrid#lines} for the cursor contract.
+     */
+    public Stream<Line> columns() {
+        return lines(true, () -> new Line(true));
+    }
+
+    /**
+     * Reusable view over one row or column of this grid.
+     */
+    public final class Line extends LineCursor {
+        private Line(boolean column) {
+            super(column);
+        }
+
+        public long get(int i) {
+            return grid[storageIndex(i)];
+        }
+
+        public void set(int i, long value) {
+            grid[storageIndex(i)] = value;
+        }
+
+        /** Copies the line into the given buffer. */
+        public long[] copyTo(long[] buffer) {
+            return isColumn() ? getColumn(index(), buffer) : getRow(index(), buffer);
+        }
+
+        /** Copies the line into a new array. */
+        public long[] toArray() {
+            return copyTo(new long[length()]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numCols; col++) {
+                sb.append(get(row, col));
+                if (col < numCols - 1) sb.append(", ");
+            }
+            if (row < numRows - 1) sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,12 +1,15 @@
 package day6;
 
 import utils.fileReaders.FileReaderException;
-import utils.fileReaders.TextFileReader;
-import utils.files.TextFile;
+import utils.fileReaders.Resources;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 //class StringInverter {
 //    private static void swap(char[] string, int a, int b) {
@@ -28,189 +31,101 @@ import java.util.List;
 
 public class MathSolver {
     private static final String MATH_PROBLEMS_FILE_NAME = "mathProblems.txt";
-
-    public static TextFile loadFromRessources(String fileName) throws FileReaderException {
-        return (TextFile) TextFileReader.getInstance().loadFromResources(fileName, MathSolver.class.getClassLoader());
+    // Nombre de problèmes résolus à la suite par une tâche de solveAll
+    private static final int SOLVE_GRANULARITY = 1 << 12;
+
+    /**
+     * Sums the exact results of all the problems. Computed on {@code long} and promoted
+     * to {@link BigInteger} only if a result or the sum overflows.
+     */
+    private static BigInteger solveAll(List<Problem> problems) {
+        return solveAll(problems, SOLVE_GRANULARITY);
     }
 
-    public static Grid<String> extractData(TextFile textFile) {
-        int numRows = textFile.getLineCount();          // Inclut la ligne des opérations
-        int numCols = textFile.getLine(0).trim().split("\\s+").length;
-
-        // Construire la Grid qui contient TOUT, y compris la ligne des opérations
-        Grid<String> grid = new Grid<>(numCols, numRows);
-
-        for (int row = 0; row < numRows; row++) {
-            String[] parts = textFile.getLine(row).trim().split("\\s+");
-
-            if (parts.length != numCols) {
-                throw new IllegalStateException("Inconsistent row length at row " + row);
-            }
-
-            for (int col = 0; col < numCols; col++) {
-                grid.set(row, col, parts[col]);
-            }
+    /**
+     * Parallel version of {@link #solveAll(List)}: the list is split in halves on the fork/join
+     * pool down to {@code granularity} problems per task. Each task sums into its own accumulator
+     * and the partial sums are added when the halves are joined; the sum being exact, the result
+     * does not depend on the split.
+     *
+     * @param granularity Maximum number of problems solved sequentially by a task.
+     */
+    public static BigInteger solveAll(List<Problem> problems, int granularity) {
+        if (granularity <= 0) {
+            throw new IllegalArgumentException("Granularity must be positive: " + granularity);
         }
-
-        return grid;
+        return ForkJoinPool.commonPool()
+                .invoke(new SolveTask(problems, 0, problems.size(), granularity))
+                .toBigInteger();
     }
 
-    private static List<Problem> extractProblems(Grid<String> grid) {
-        List<Problem> problems = new ArrayList<>();
-
-        for (int i = 0; i < grid.getNumCols(); i++) { // parcourt les lignes transposées
-            String[] row = grid.getColumn(i);
+    private static final class SolveTask extends RecursiveTask<ExactAccumulator> {
+        private static final long serialVersionUID = 1L;
 
-            List<Long> numbers = new ArrayList<>();
-            Operation op = null;
+        // Tâche jamais sérialisée : la liste n'a pas à l'être
+        private final transient List<Problem> problems;
+        private final int from;
+        private final int to;
+        private final int granularity;
 
-            for (String v : row) {
-                if (v.matches("\\d+")) {
-                    numbers.add(Long.parseLong(v));
-                } else if (v.matches("[+\\-*/]")) {
-                    op = getOperation(op, v);
-                }
-            }
-
-            if (op == null) throw new IllegalStateException("No operation found in row " + i);
-
-            problems.add(new Problem(numbers, op));
+        SolveTask(List<Problem> problems, int from, int to, int granularity) {
+            this.problems = problems;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
         }
 
-        return problems;
-    }
-
-    private static List<ProblemBig> extractProblemsV(Grid<String> grid) {
-        List<ProblemBig> problems = new ArrayList<>();
-
-        int numCols = grid.getNumCols();
-        int numRows = grid.getNumRows();
-
-        // Identifier les colonnes qui appartiennent aux problèmes
-        List<List<Integer>> problemColumns = new ArrayList<>();
-        List<Integer> currentProblem = new ArrayList<>();
-
-        for (int col = 0; col < numCols; col++) {
-            boolean isEmptyCol = true;
-            for (int row = 0; row < numRows - 1; row++) { // ignorer la dernière ligne
-                if (!grid.get(row, col).trim().isEmpty()) {
-                    isEmptyCol = false;
-                    break;
+        @Override
+        protected ExactAccumulator compute() {
+            if (to - from <= granularity) {
+                ExactAccumulator sum = new ExactAccumulator();
+                ExactAccumulator result = new ExactAccumulator();
+                for (int i = from; i < to; i++) {
+                    problems.get(i).solve(result);
+                    sum.add(result);
                 }
+                return sum;
             }
 
-            if (isEmptyCol) {
-                if (!currentProblem.isEmpty()) {
-                    problemColumns.add(currentProblem);
-                    currentProblem = new ArrayList<>();
-                }
-            } else {
-                currentProblem.add(col);
-            }
+            int mid = (from + to) >>> 1;
+            SolveTask left = new SolveTask(problems, from, mid, granularity);
+            SolveTask right = new SolveTask(problems, mid, to, granularity);
+            left.fork();
+            ExactAccumulator sum = right.compute();
+            return sum.add(left.join());
         }
-        if (!currentProblem.isEmpty()) problemColumns.add(currentProblem);
-
-        // Parcourir les problèmes de droite à gauche
-        for (int p = problemColumns.size() - 1; p >= 0; p--) {
-            List<Integer> cols = problemColumns.get(p);
-            List<BigInteger> numbers = new ArrayList<>();
-            Operation op = null;
-
-            for (int col : cols) {
-                StringBuilder numberBuilder = new StringBuilder();
-                for (int row = 0; row < numRows - 1; row++) {
-                    String val = grid.get(row, col);
-                    if (!val.trim().isEmpty()) {
-                        numberBuilder.append(val);
-                    }
-                }
-                numbers.add(new BigInteger(numberBuilder.toString()));
-
-                String lastLineVal = grid.get(numRows - 1, col).trim();
-                if (!lastLineVal.isEmpty()) {
-                    op = getOperation(op, lastLineVal);
-                }
-            }
-
-            if (op == null) throw new IllegalStateException("No operation found in problem " + p);
-            problems.add(new ProblemBig(numbers, op));
-        }
-
-        return problems;
-    }
-
-    // Version BigInteger de Problem
-    public static class ProblemBig {
-        private final List<BigInteger> numbers;
-        private final Operation operation;
-
-        public ProblemBig(List<BigInteger> numbers, Operation operation) {
-            this.numbers = numbers;
-            this.operation = operation;
-        }
-
-        public BigInteger solve() {
-            return switch (operation) {
-                case ADDITION -> numbers.stream().reduce(BigInteger.ZERO, BigInteger::add);
-                case SUBTRACTION -> numbers.stream().skip(1)
-                        .reduce(numbers.getFirst(), BigInteger::subtract);
-                case MULTIPLICATION -> numbers.stream().reduce(BigInteger.ONE, BigInteger::multiply);
-                case DIVISION -> numbers.stream().skip(1)
-                        .reduce(numbers.getFirst(), BigInteger::divide);
-            };
-        }
-    }
-
-    private static Operation getOperation(Operation op, String lastLineVal) {
-        op = switch (lastLineVal.charAt(0)) {
-            case '+' -> Operation.ADDITION;
-            case '-' -> Operation.SUBTRACTION;
-            case '*' -> Operation.MULTIPLICATION;
-            case '/' -> Operation.DIVISION;
-            default -> op;
-        };
-        return op;
-    }
-
-    private static long solveAll(List<Problem> problems) {
-        long sum = 0;
-        for (Problem problem : problems) {
-            long result = problem.solve();
-            //results.add(result);
-            sum += result;
-        }
-        return sum;
     }
 
-    private static BigInteger solveAllV(List<ProblemBig> problems) {
-        BigInteger sum = BigInteger.ZERO;
-        for (ProblemBig problem : problems) {
-            BigInteger result = problem.solve();
-            //results.add(result);
-            sum = sum.add(result);
+    public static void main(String[] args) throws FileReaderException, IOException {
+        Path problemsPath = Resources.resolve(MATH_PROBLEMS_FILE_NAME, MathSolver.class.getClassLoader());
+        if (Resources.isOutOfCore(problemsPath)) {
+            // Trop gros pour la mémoire : lecture en flux, bloc de colonnes par bloc de colonnes
+            WorksheetScanner scanner = WorksheetScanner.open(problemsPath);
+            System.out.println("===== Part 1 =====");
+            System.out.println(scanner.solveAll());
+
+            // Part 2 : même fichier mappé, colonne de caractères par colonne de caractères
+            System.out.println("===== Part 2 =====");
+            System.out.println(scanner.solveAllVertical());
+            return;
         }
-        return sum;
-    }
-
-    public static void main(String[] args) throws FileReaderException {
-        TextFile problemsFile = loadFromRessources(MATH_PROBLEMS_FILE_NAME);
-
-        Grid<String> grid = extractData(problemsFile);
 
         // Part 1
         System.out.println("===== Part 1 =====");
-        List<Problem> problems = extractProblems(grid);
+        WorksheetTokenizer worksheet = WorksheetTokenizer.parse(problemsPath);
+        Worksheet problems = Worksheet.of(worksheet.getNumbers(), worksheet.getOperations());
 
         List<Long> results = new ArrayList<>();
-        long sum = solveAll(problems);
+        BigInteger sum = problems.solveAll();
         System.out.println(results);
         System.out.println(sum);
 
         // Part 2
         System.out.println("===== Part 2 =====");
-        List<ProblemBig> problemsV = extractProblemsV(grid);
+        // Lecture en largeur fixe : un nombre par colonne de caractères, de droite à gauche
+        List<Problem> problemsV = VerticalWorksheet.parse(problemsPath);
 
-        BigInteger sumV = new BigInteger(String.valueOf(solveAllV(problemsV)));
+        BigInteger sumV = solveAll(problemsV);
         System.out.println(results);
         System.out.println(sumV);
     }
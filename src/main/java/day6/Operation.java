@@ -11,4 +11,17 @@ public enum Operation {
     public char getSymbol() {
         return symbol;
     }
+
+    /**
+     * @return The operation written with this symbol, or null if there is none.
+     */
+    public static Operation fromSymbol(char symbol) {
+        return switch (symbol) {
+            case '+' -> ADDITION;
+            case '-' -> SUBTRACTION;
+            case '*' -> MULTIPLICATION;
+            case '/' -> DIVISION;
+            default -> null;
+        };
+    }
 }
@@ -1,59 +1,134 @@
 package day6;
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 public class Problem {
-    private final List<Long> numbers;
+    private final long[] numbers;
+    // Opérandes trop grands pour un long (null si tous tiennent dans numbers)
+    private final BigInteger[] bigNumbers;
     private final Operation operation;
 
-    public Problem(List<Long> numbers, Operation operation) {
+    public Problem(long[] numbers, Operation operation) {
         this.numbers = numbers;
+        this.bigNumbers = null;
+        this.operation = operation;
+    }
+
+    public Problem(List<Long> numbers, Operation operation) {
+        this(numbers.stream().mapToLong(Long::longValue).toArray(), operation);
+    }
+
+    /**
+     * Problem with arbitrary-precision operands; they are stored as {@code long}
+     * whenever all of them fit.
+     */
+    public Problem(BigInteger[] numbers, Operation operation) {
+        long[] small = new long[numbers.length];
+        boolean fits = true;
+        for (int i = 0; i < numbers.length && fits; i++) {
+            fits = numbers[i].bitLength() < Long.SIZE;
+            small[i] = numbers[i].longValue();
+        }
+        this.numbers = fits ? small : null;
+        this.bigNumbers = fits ? null : numbers.clone();
         this.operation = operation;
     }
 
     public String toString() {
-        return numbers.toString() + " " + operation.toString();
+        return (bigNumbers != null ? Arrays.toString(bigNumbers) : Arrays.toString(numbers))
+                + " " + operation.toString();
     }
 
-    public Long solve() {
+    /**
+     * @return The exact result.
+     * @throws ArithmeticException If the result does not fit in a {@code long}
+     *                             (use {@link #solveExact()} or {@link #solve(ExactAccumulator)}).
+     */
+    public long solve() {
+        return solve(new ExactAccumulator()).longValueExact();
+    }
+
+    public BigInteger solveExact() {
+        return solve(new ExactAccumulator()).toBigInteger();
+    }
+
+    /**
+     * Computes the exact result into the given accumulator, without allocating
+     * as long as every intermediate value fits in a {@code long}.
+     *
+     * @param result Accumulator overwritten with the result.
+     * @return The accumulator.
+     */
+    public ExactAccumulator solve(ExactAccumulator result) {
+        if (bigNumbers != null) {
+            return solveBig(result);
+        }
         return switch (operation) {
-            case Operation.ADDITION -> addAll();
-            case SUBTRACTION -> subtractAll();
-            case MULTIPLICATION -> multiplyAll();
-            case DIVISION -> divideAll();
+            case ADDITION -> addAll(result);
+            case SUBTRACTION -> subtractAll(result);
+            case MULTIPLICATION -> multiplyAll(result);
+            case DIVISION -> divideAll(result);
         };
     }
 
-    private Long addAll() {
-        long sum = 0;
-        for (Long number : numbers) {
-            sum += number;
+    private ExactAccumulator addAll(ExactAccumulator sum) {
+        sum.reset(0);
+        for (int i = 0; i < numbers.length; i++) {
+            sum.add(numbers[i]);
+            if (!sum.fitsInLong()) {
+                // Dépassement : le reste est sommé par paires
+                return sum.reset(sum.toBigInteger().add(BigReduction.sum(numbers, i + 1, numbers.length)));
+            }
         }
         return sum;
     }
 
-    private Long subtractAll() {
-        long dif = numbers.getFirst();
-        for (int i = 1; i < numbers.size(); i++) {
-            dif -= numbers.get(i);
+    private ExactAccumulator subtractAll(ExactAccumulator dif) {
+        if (numbers.length == 0) return dif.reset(0);
+        dif.reset(numbers[0]);
+        for (int i = 1; i < numbers.length; i++) {
+            dif.subtract(numbers[i]);
         }
         return dif;
     }
 
-    private Long multiplyAll() {
-        long mul = 1;
-        for (Long number : numbers) {
-            mul = mul * number;
+    private ExactAccumulator multiplyAll(ExactAccumulator mul) {
+        mul.reset(1);
+        for (int i = 0; i < numbers.length; i++) {
+            mul.multiply(numbers[i]);
+            if (!mul.fitsInLong()) {
+                // Dépassement : le reste passe par un arbre de produits
+                return mul.reset(mul.toBigInteger().multiply(BigReduction.product(numbers, i + 1, numbers.length)));
+            }
         }
         return mul;
     }
 
-    private long divideAll() {
-        if (numbers.isEmpty()) return 0;
-        long div = numbers.get(0);
-        for (int i = 1; i < numbers.size(); i++) {
-            div = div / numbers.get(i);
+    private ExactAccumulator divideAll(ExactAccumulator div) {
+        if (numbers.length == 0) return div.reset(0);
+        div.reset(numbers[0]);
+        for (int i = 1; i < numbers.length; i++) {
+            div.divide(numbers[i]);
         }
         return div;
     }
+
+    // Au moins un opérande dépasse un long
+    private ExactAccumulator solveBig(ExactAccumulator result) {
+        switch (operation) {
+            case ADDITION -> result.reset(BigReduction.sum(bigNumbers));
+            case MULTIPLICATION -> result.reset(BigReduction.product(bigNumbers));
+            case SUBTRACTION -> {
+                result.reset(bigNumbers[0]);
+                for (int i = 1; i < bigNumbers.length; i++) result.subtract(bigNumbers[i]);
+            }
+            case DIVISION -> {
+                result.reset(bigNumbers[0]);
+                for (int i = 1; i < bigNumbers.length; i++) result.divide(bigNumbers[i]);
+            }
+        }
+        return result;
+    }
 }
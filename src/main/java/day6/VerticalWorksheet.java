@@ -0,0 +1,172 @@
+package day6;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-width reading of a worksheet, for part 2: every column of characters is one number,
+ * read from top to bottom, and problems are separated by columns that are blank on every row.
+ * <p>
+ * The rows are kept as bytes in one padded {@code byte[]}; the separator columns are found with
+ * a single OR-reduction across the rows, and each vertical number is accumulated directly as a
+ * {@code long} (as a {@link BigInteger} only if it overflows). No String is created per cell.
+ * </p>
+ */
+public final class VerticalWorksheet {
+    private VerticalWorksheet() {}
+
+    public static List<Problem> parse(Path path) throws IOException {
+        return parse(Files.readAllBytes(path));
+    }
+
+    /**
+     * Reads the problems of a worksheet, from the rightmost to the leftmost one. Within a
+     * problem, numbers are also listed from right to left.
+     *
+     * @param bytes Content of the worksheet (ASCII); the last non-empty line holds the operations.
+     * @return The problems.
+     * @throws IllegalStateException If a problem has no operation (or several), or an unexpected
+     *                               character is found.
+     */
+    public static List<Problem> parse(byte[] bytes) {
+        // Découpage en lignes, sans les lignes vides finales
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int rows = 0;
+        int width = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') continue;
+            int end = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows * 2);
+                ends = Arrays.copyOf(ends, rows * 2);
+            }
+            starts[rows] = lineStart;
+            ends[rows++] = end;
+            width = Math.max(width, end - lineStart);
+            lineStart = i + 1;
+        }
+        while (rows > 0 && isBlankLine(bytes, starts[rows - 1], ends[rows - 1])) {
+            rows--;
+        }
+        if (rows == 0) {
+            throw new IllegalStateException("Missing operation line");
+        }
+
+        // Grille de largeur fixe, complétée par des espaces
+        byte[] cells = new byte[rows * width];
+        Arrays.fill(cells, (byte) ' ');
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(bytes, starts[row], cells, row * width, ends[row] - starts[row]);
+        }
+
+        // Colonne non nulle si au moins une ligne y a autre chose qu'un espace
+        byte[] occupied = new byte[width];
+        for (int row = 0; row < rows; row++) {
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+                occupied[col] |= (byte) (cells[offset + col] ^ ' ');
+            }
+        }
+
+        int operationRow = rows - 1;
+        List<Problem> problems = new ArrayList<>();
+        int col = width - 1;
+        while (col >= 0) {
+            if (occupied[col] == 0) {
+                col--;
+                continue;
+            }
+            int last = col;
+            while (col >= 0 && occupied[col] != 0) col--;
+            int first = col + 1;
+
+            problems.add(readProblem(cells, width, operationRow, first, last, 0));
+        }
+
+        return problems;
+    }
+
+    /**
+     * Reads the problem spanning the columns {@code [first, last]} of a padded grid of cells,
+     * from right to left.
+     *
+     * @param columnOffset Added to the column indices in error messages (for grids that only
+     *                     hold a slice of the worksheet).
+     */
+    static Problem readProblem(byte[] cells, int width, int operationRow, int first, int last, long columnOffset) {
+        Operation operation = null;
+        for (int col = first; col <= last; col++) {
+            byte b = cells[operationRow * width + col];
+            if (b == ' ') continue;
+            Operation parsed = Operation.fromSymbol((char) b);
+            if (parsed == null || operation != null) {
+                throw new IllegalStateException("Unexpected character '" + (char) b + "' in the operation line, column "
+                        + (columnOffset + col));
+            }
+            operation = parsed;
+        }
+        if (operation == null) {
+            throw new IllegalStateException("No operation found for columns " + (columnOffset + first) + "-"
+                    + (columnOffset + last));
+        }
+
+        long[] numbers = new long[last - first + 1];
+        BigInteger[] bigNumbers = null; // créé au premier dépassement
+        int count = 0;
+
+        for (int col = last; col >= first; col--) {
+            long value = 0;
+            BigInteger big = null;
+            boolean hasDigit = false;
+
+            for (int row = 0; row < operationRow; row++) {
+                byte b = cells[row * width + col];
+                if (b == ' ') continue;
+                if (b < '0' || b > '9') {
+                    throw new IllegalStateException("Unexpected character '" + (char) b + "' at row " + row + ", column "
+                            + (columnOffset + col));
+                }
+                int digit = b - '0';
+                hasDigit = true;
+                if (big == null && value > (Long.MAX_VALUE - digit) / 10) {
+                    big = BigInteger.valueOf(value);
+                }
+                if (big != null) {
+                    big = big.multiply(BigInteger.TEN).add(BigInteger.valueOf(digit));
+                } else {
+                    value = value * 10 + digit;
+                }
+            }
+            if (!hasDigit) continue; // colonne qui ne porte que l'opération
+
+            if (big != null && bigNumbers == null) {
+                bigNumbers = new BigInteger[numbers.length];
+                for (int i = 0; i < count; i++) {
+                    bigNumbers[i] = BigInteger.valueOf(numbers[i]);
+                }
+            }
+            if (bigNumbers != null) {
+                bigNumbers[count] = big != null ? big : BigInteger.valueOf(value);
+            }
+            numbers[count++] = value;
+        }
+
+        return bigNumbers != null
+                ? new Problem(Arrays.copyOf(bigNumbers, count), operation)
+                : new Problem(Arrays.copyOf(numbers, count), operation);
+    }
+
+    private static boolean isBlankLine(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') return false;
+        }
+        return true;
+    }
+}
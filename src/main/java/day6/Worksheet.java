@@ -0,0 +1,185 @@
+package day6;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar form of a whole worksheet, for batch evaluation.
+ * <p>
+ * The operands of all the problems are stored one after another in a single {@code long[]}
+ * (problem {@code p} owns {@code operands[offsets[p]..offsets[p + 1])}), and the problems are
+ * bucketed by {@link Operation}. Each bucket is evaluated by its own loop, with no boxing, no
+ * per-problem dispatch and no object per problem. Overflows are detected without branching
+ * in the loops; the few problems that overflow are recomputed exactly through {@link Problem}.
+ * </p>
+ */
+public final class Worksheet {
+    /** Problems per parallel chunk of a bucket. */
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    private final long[] operands;
+    private final int[] offsets;
+    private final Operation[] operations;
+    /** Indices of the problems of each operation, by {@link Operation#ordinal()}. */
+    private final int[][] buckets;
+
+    private Worksheet(long[] operands, int[] offsets, Operation[] operations) {
+        this.operands = operands;
+        this.offsets = offsets;
+        this.operations = operations;
+
+        int[] counts = new int[Operation.values().length];
+        for (Operation operation : operations) {
+            counts[operation.ordinal()]++;
+        }
+        buckets = new int[counts.length][];
+        for (int op = 0; op < counts.length; op++) {
+            buckets[op] = new int[counts[op]];
+            counts[op] = 0;
+        }
+        for (int p = 0; p < operations.length; p++) {
+            int op = operations[p].ordinal();
+            buckets[op][counts[op]++] = p;
+        }
+    }
+
+    /**
+     * Builds the worksheet from parsed numbers, one column per problem.
+     *
+     * @param numbers    Numbers of the worksheet (see {@link WorksheetTokenizer}).
+     * @param operations Operation of each column.
+     */
+    public static Worksheet of(LongGrid numbers, Operation[] operations) {
+        int numCols = numbers.getNumCols();
+        int numRows = numbers.getNumRows();
+        if (operations.length != numCols) {
+            throw new IllegalStateException("Expected " + numCols + " operations, found " + operations.length);
+        }
+
+        // Transposée par tuiles : les opérandes de chaque problème se suivent
+        long[] operands = numbers.transposedStorage();
+        int[] offsets = new int[numCols + 1];
+        for (int col = 0; col <= numCols; col++) {
+            offsets[col] = col * numRows;
+        }
+        return new Worksheet(operands, offsets, operations.clone());
+    }
+
+    public int getProblemCount() {
+        return operations.length;
+    }
+
+    /** Builds the standalone {@link Problem} at index {@code p}. */
+    public Problem getProblem(int p) {
+        return new Problem(Arrays.copyOfRange(operands, offsets[p], offsets[p + 1]), operations[p]);
+    }
+
+    /**
+     * Sums the exact results of all the problems, bucket by bucket. Buckets are split in
+     * chunks evaluated in parallel; the partial sums are exact, so the result is deterministic.
+     */
+    public BigInteger solveAll() {
+        ExactAccumulator total = new ExactAccumulator();
+        for (Operation operation : Operation.values()) {
+            int[] bucket = buckets[operation.ordinal()];
+            int chunks = (bucket.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+            ExactAccumulator partial = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(chunk -> {
+                        int from = chunk * CHUNK_SIZE;
+                        int to = Math.min(bucket.length, from + CHUNK_SIZE);
+                        return switch (operation) {
+                            case ADDITION -> addAll(bucket, from, to);
+                            case SUBTRACTION -> subtractAll(bucket, from, to);
+                            case MULTIPLICATION -> multiplyAll(bucket, from, to);
+                            case DIVISION -> divideAll(bucket, from, to);
+                        };
+                    })
+                    .reduce(new ExactAccumulator(), (a, b) -> new ExactAccumulator().add(a).add(b));
+            total.add(partial);
+        }
+        return total.toBigInteger();
+    }
+
+    private ExactAccumulator addAll(int[] bucket, int from, int to) {
+        ExactAccumulator sum = new ExactAccumulator();
+        for (int i = from; i < to; i++) {
+            int p = bucket[i];
+            long result = 0;
+            long overflow = 0;
+            for (int k = offsets[p]; k < offsets[p + 1]; k++) {
+                long operand = operands[k];
+                long next = result + operand;
+                // Dépassement si les deux termes ont le même signe et le résultat l'autre
+                overflow |= (result ^ next) & (operand ^ next);
+                result = next;
+            }
+            addResult(sum, p, result, overflow < 0);
+        }
+        return sum;
+    }
+
+    private ExactAccumulator subtractAll(int[] bucket, int from, int to) {
+        ExactAccumulator sum = new ExactAccumulator();
+        for (int i = from; i < to; i++) {
+            int p = bucket[i];
+            if (offsets[p] == offsets[p + 1]) continue;
+            long result = operands[offsets[p]];
+            long overflow = 0;
+            for (int k = offsets[p] + 1; k < offsets[p + 1]; k++) {
+                long operand = operands[k];
+                long next = result - operand;
+                overflow |= (result ^ operand) & (result ^ next);
+                result = next;
+            }
+            addResult(sum, p, result, overflow < 0);
+        }
+        return sum;
+    }
+
+    private ExactAccumulator multiplyAll(int[] bucket, int from, int to) {
+        ExactAccumulator sum = new ExactAccumulator();
+        for (int i = from; i < to; i++) {
+            int p = bucket[i];
+            long result = 1;
+            boolean overflow = false;
+            for (int k = offsets[p]; k < offsets[p + 1]; k++) {
+                long operand = operands[k];
+                long next = result * operand;
+                // Le produit sur 128 bits doit se réduire à l'extension de signe de next
+                overflow |= Math.multiplyHigh(result, operand) != (next >> 63);
+                result = next;
+            }
+            addResult(sum, p, result, overflow);
+        }
+        return sum;
+    }
+
+    private ExactAccumulator divideAll(int[] bucket, int from, int to) {
+        ExactAccumulator sum = new ExactAccumulator();
+        for (int i = from; i < to; i++) {
+            int p = bucket[i];
+            if (offsets[p] == offsets[p + 1]) continue;
+            long result = operands[offsets[p]];
+            boolean overflow = false;
+            for (int k = offsets[p] + 1; k < offsets[p + 1]; k++) {
+                long operand = operands[k];
+                overflow |= result == Long.MIN_VALUE && operand == -1;
+                result = result / operand;
+            }
+            addResult(sum, p, result, overflow);
+        }
+        return sum;
+    }
+
+    private void addResult(ExactAccumulator sum, int p, long result, boolean overflow) {
+        if (overflow) {
+            // Rare : on refait le calcul exactement
+            sum.add(getProblem(p).solve(new ExactAccumulator()));
+        } else {
+            sum.add(result);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package day6;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for worksheets too large to be loaded in memory.
+ * <p>
+ * The file is mapped (in segments of 1 GiB, so files beyond 2 GiB are supported) and a first
+ * pass records the byte offset of every row. The rows are then read in lockstep, one block of
+ * columns at a time: each row keeps a cursor on its next value, and every block of problems is
+ * solved as soon as it is read. Memory is proportional to rows × block width, not to the file.
+ * </p>
+ * <p>
+ * {@link #solveAllVertical()} reads the same mapping the fixed-width way of part 2 (see
+ * {@link VerticalWorksheet}), one column of characters at a time.
+ * </p>
+ */
+public final class WorksheetScanner {
+    /** Default number of problems read per block. */
+    public static final int DEFAULT_BLOCK_WIDTH = 1 << 12;
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    /** Start of each row (the last one is the operation line), then the end of that line. */
+    private final long[] rowStarts;
+    private final int numRows;          // lignes de nombres
+    private final int blockWidth;
+
+    private WorksheetScanner(MappedByteBuffer[] segments, long size, int blockWidth) {
+        this.segments = segments;
+        this.size = size;
+        this.blockWidth = blockWidth;
+        this.rowStarts = indexRows();
+        this.numRows = rowStarts.length - 2;
+    }
+
+    /**
+     * Maps a worksheet file and indexes its rows.
+     *
+     * @param path       Worksheet file.
+     * @param blockWidth Number of problems read and solved per block.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static WorksheetScanner open(Path path, int blockWidth) throws IOException {
+        if (blockWidth <= 0) {
+            throw new IllegalArgumentException("Block width must be positive: " + blockWidth);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+            for (int s = 0; s < segments.length; s++) {
+                long start = (long) s << SEGMENT_BITS;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+            // Le mappage reste valide après la fermeture du canal
+            return new WorksheetScanner(segments, size, blockWidth);
+        }
+    }
+
+    public static WorksheetScanner open(Path path) throws IOException {
+        return open(path, DEFAULT_BLOCK_WIDTH);
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    // Premier passage : début de chaque ligne non vide, plus la fin de la dernière
+    private long[] indexRows() {
+        long[] starts = new long[64];
+        int count = 0;
+        long lineStart = 0;
+        boolean blankLine = true;
+        long lastEnd = 0;
+
+        for (long position = 0; position <= size; position++) {
+            byte b = position < size ? byteAt(position) : (byte) '\n';
+            if (b == '\n') {
+                if (!blankLine) {
+                    if (count + 1 >= starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[count++] = lineStart;
+                    lastEnd = position;
+                }
+                lineStart = position + 1;
+                blankLine = true;
+            } else if (!isBlank(b)) {
+                blankLine = false;
+            }
+        }
+
+        if (count == 0) {
+            throw new IllegalStateException("Missing operation line");
+        }
+        starts[count++] = lastEnd;
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Reads the worksheet block by block.
+     *
+     * @param blocks Receives each block of problems, in column order, as soon as it is read.
+     * @throws IllegalStateException If the rows do not have the same number of values, or the
+     *                               file contains an unexpected character.
+     */
+    public void scan(Consumer<Worksheet> blocks) {
+        int opRow = numRows;
+        // Curseur de chaque ligne ; une ligne s'arrête au début de la suivante
+        long[] cursors = Arrays.copyOf(rowStarts, numRows + 1);
+        long[] values = new long[numRows * blockWidth];
+        Operation[] operations = new Operation[blockWidth];
+        int column = 0;
+
+        while (true) {
+            // Opérations du bloc
+            int count = 0;
+            while (count < blockWidth) {
+                long position = skipBlanks(cursors[opRow], rowEnd(opRow));
+                if (position == rowEnd(opRow)) {
+                    cursors[opRow] = position;
+                    break;
+                }
+                Operation op = Operation.fromSymbol((char) byteAt(position));
+                if (op == null) {
+                    throw new IllegalStateException("Unexpected character '" + (char) byteAt(position)
+                            + "' in the operation line, column " + (column + count));
+                }
+                operations[count++] = op;
+                cursors[opRow] = position + 1;
+            }
+            if (count == 0) break;
+
+            // Nombres du bloc, ligne par ligne (rangés ligne par ligne, count valeurs par ligne)
+            for (int row = 0; row < numRows; row++) {
+                for (int j = 0; j < count; j++) {
+                    values[row * count + j] = nextNumber(cursors, row, column + j);
+                }
+            }
+
+            long[] storage = count == blockWidth ? values : Arrays.copyOf(values, numRows * count);
+            Operation[] blockOperations = count == blockWidth ? operations : Arrays.copyOf(operations, count);
+            blocks.accept(Worksheet.of(new LongGrid(count, numRows, storage), blockOperations));
+            column += count;
+        }
+
+        for (int row = 0; row < numRows; row++) {
+            if (skipBlanks(cursors[row], rowEnd(row)) != rowEnd(row)) {
+                throw new IllegalStateException("Inconsistent row length at row " + row);
+            }
+        }
+    }
+
+    /**
+     * Solves the whole worksheet one block at a time.
+     *
+     * @return The exact sum of the results.
+     */
+    public BigInteger solveAll() {
+        ExactAccumulator sum = new ExactAccumulator();
+        scan(block -> sum.add(block.solveAll()));
+        return sum.toBigInteger();
+    }
+
+    /**
+     * Solves the worksheet read the fixed-width way of {@link VerticalWorksheet}: one number per
+     * column of characters, problems separated by blank columns. Only the columns of the problem
+     * being read are kept in memory.
+     *
+     * @return The exact sum of the results.
+     * @throws IllegalStateException If a problem has no operation (or several), or an unexpected
+     *                               character is found.
+     */
+    public BigInteger solveAllVertical() {
+        int rows = numRows + 1;
+        long[] lengths = new long[rows];
+        long width = 0;
+        for (int row = 0; row < rows; row++) {
+            lengths[row] = lineEnd(row) - rowStarts[row];
+            width = Math.max(width, lengths[row]);
+        }
+
+        ExactAccumulator sum = new ExactAccumulator();
+        ExactAccumulator result = new ExactAccumulator();
+        // Colonnes du problème en cours, ligne par ligne (une case par ligne et par colonne)
+        byte[] cells = new byte[rows * 16];
+        int problemWidth = 0;
+        long first = 0;
+
+        for (long column = 0; column <= width; column++) {
+            boolean occupied = false;
+            for (int row = 0; column < width && row < rows; row++) {
+                occupied |= cellAt(row, column, lengths) != ' ';
+            }
+
+            if (!occupied) {
+                if (problemWidth > 0) {
+                    // Cases rangées colonne par colonne : la grille du problème est transposée
+                    byte[] grid = new byte[rows * problemWidth];
+                    for (int c = 0; c < problemWidth; c++) {
+                        for (int row = 0; row < rows; row++) {
+                            grid[row * problemWidth + c] = cells[c * rows + row];
+                        }
+                    }
+                    VerticalWorksheet.readProblem(grid, problemWidth, numRows, 0, problemWidth - 1, first).solve(result);
+                    sum.add(result);
+                    problemWidth = 0;
+                }
+                continue;
+            }
+
+            if (problemWidth == 0) first = column;
+            if ((problemWidth + 1) * rows > cells.length) {
+                cells = Arrays.copyOf(cells, cells.length * 2);
+            }
+            for (int row = 0; row < rows; row++) {
+                cells[problemWidth * rows + row] = cellAt(row, column, lengths);
+            }
+            problemWidth++;
+        }
+
+        return sum.toBigInteger();
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    // Fin de la ligne (sans '\n' ni '\r'), cherchée avant le début de la ligne suivante
+    private long lineEnd(int row) {
+        long end = rowStarts[row];
+        long limit = row + 1 < rowStarts.length ? rowStarts[row + 1] : size;
+        while (end < limit && byteAt(end) != '\n') {
+            end++;
+        }
+        if (end > rowStarts[row] && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    // Case de la grille de largeur fixe : un espace au-delà de la fin de la ligne
+    private byte cellAt(int row, long column, long[] lengths) {
+        return column < lengths[row] ? byteAt(rowStarts[row] + column) : (byte) ' ';
+    }
+
+    private long rowEnd(int row) {
+        return rowStarts[row + 1];
+    }
+
+    private long nextNumber(long[] cursors, int row, int column) {
+        long end = rowEnd(row);
+        long position = skipBlanks(cursors[row], end);
+        if (position == end) {
+            throw new IllegalStateException("Inconsistent row length at row " + row);
+        }
+
+        long value = 0;
+        byte b;
+        while (position < end && (b = byteAt(position)) >= '0' && b <= '9') {
+            int digit = b - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw new IllegalStateException("Number too large at row " + row + ", column " + column);
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        if (position < end && !isBlank(byteAt(position))) {
+            throw new IllegalStateException("Unexpected character '" + (char) byteAt(position) + "' at row " + row);
+        }
+
+        cursors[row] = position;
+        return value;
+    }
+
+    private long skipBlanks(long position, long end) {
+        while (position < end && isBlank(byteAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,132 @@
+package day6;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer for math worksheets: number rows separated by blanks, then one line
+ * of operations. The file bytes are read once, digits are accumulated straight into a flat
+ * {@code long[]} (row-major) and operations into an array; no line, token or regex is created.
+ */
+public final class WorksheetTokenizer {
+    private final LongGrid numbers;
+    private final Operation[] operations;
+
+    private WorksheetTokenizer(LongGrid numbers, Operation[] operations) {
+        this.numbers = numbers;
+        this.operations = operations;
+    }
+
+    public static WorksheetTokenizer parse(Path path) throws IOException {
+        return parse(Files.readAllBytes(path));
+    }
+
+    /**
+     * Tokenizes a whole worksheet.
+     *
+     * @param bytes Content of the worksheet (ASCII).
+     * @return The numbers (one column per problem) and the operation of each column.
+     * @throws IllegalStateException If a row has the wrong number of values, a number does not
+     *                               fit in a long, or an unexpected character is found.
+     */
+    public static WorksheetTokenizer parse(byte[] bytes) {
+        long[] values = new long[64];
+        int valueCount = 0;
+        Operation[] operations = new Operation[16];
+        int operationCount = 0;
+
+        int numCols = -1;     // fixé par la première ligne
+        int row = 0;
+        int col = 0;          // nombre de valeurs lues sur la ligne courante
+        boolean operationLine = false;
+        boolean done = false; // ligne des opérations terminée
+
+        long value = 0;
+        boolean inNumber = false;
+
+        for (int i = 0; i <= bytes.length; i++) {
+            int b = i < bytes.length ? bytes[i] : '\n';
+
+            if (b >= '0' && b <= '9') {
+                if (operationLine || done) {
+                    throw new IllegalStateException("Unexpected digit after the operations, at row " + row);
+                }
+                int digit = b - '0';
+                if (value > (Long.MAX_VALUE - digit) / 10) {
+                    throw new IllegalStateException("Number too large at row " + row + ", column " + col);
+                }
+                value = value * 10 + digit;
+                inNumber = true;
+                continue;
+            }
+
+            // Fin de nombre
+            if (inNumber) {
+                if (numCols >= 0 && col == numCols) {
+                    throw new IllegalStateException("Inconsistent row length at row " + row);
+                }
+                if (valueCount == values.length) {
+                    values = Arrays.copyOf(values, valueCount * 2);
+                }
+                values[valueCount++] = value;
+                col++;
+                value = 0;
+                inNumber = false;
+            }
+
+            if (b == ' ' || b == '\t' || b == '\r') continue;
+
+            if (b == '\n') {
+                if (operationLine) {
+                    operationLine = false;
+                    done = true;
+                } else if (col > 0) {
+                    if (numCols < 0) {
+                        numCols = col;
+                    } else if (col != numCols) {
+                        throw new IllegalStateException("Inconsistent row length at row " + row);
+                    }
+                    row++;
+                }
+                col = 0;
+                continue;
+            }
+
+            Operation op = Operation.fromSymbol((char) b);
+            if (op == null || done || col > 0) {
+                throw new IllegalStateException("Unexpected character '" + (char) b + "' at row " + row);
+            }
+            // Premier opérateur : on est sur la dernière ligne
+            operationLine = true;
+            if (operationCount == operations.length) {
+                operations = Arrays.copyOf(operations, operationCount * 2);
+            }
+            operations[operationCount++] = op;
+        }
+
+        if (!done) {
+            throw new IllegalStateException("Missing operation line");
+        }
+        if (numCols < 0) {
+            numCols = operationCount; // aucune ligne de nombres
+        }
+        if (operationCount != numCols) {
+            throw new IllegalStateException("Expected " + numCols + " operations, found " + operationCount);
+        }
+
+        return new WorksheetTokenizer(new LongGrid(numCols, row, values),
+                Arrays.copyOf(operations, operationCount));
+    }
+
+    /** Numbers of the worksheet, one column per problem. */
+    public LongGrid getNumbers() {
+        return numbers;
+    }
+
+    /** Operation of each column. */
+    public Operation[] getOperations() {
+        return operations.clone();
+    }
+}
@@ -0,0 +1,66 @@
+package utils.fileReaders;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Access to the input files shipped as resources, for the solvers that read them directly
+ * (memory mapping, streaming) instead of going through a {@link FileReader}.
+ */
+public final class Resources {
+    /** Size (bytes) above which an input is processed out of core instead of being loaded in memory. */
+    public static final long OUT_OF_CORE_THRESHOLD = 256L * 1024 * 1024;
+
+    private Resources() {}
+
+    /**
+     * Resolves a resource to a path on the file system.
+     *
+     * @param fileName    Name of the resource.
+     * @param classLoader Class loader to search.
+     * @return The path of the resource.
+     * @throws FileReaderException If the resource does not exist or is not a file.
+     */
+    public static Path resolve(String fileName, ClassLoader classLoader) throws FileReaderException {
+        URL url = classLoader.getResource(fileName);
+        if (url == null) {
+            throw new FileReaderException("Resource not found: " + fileName);
+        }
+        try {
+            return Path.of(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new FileReaderException("Error while loading : " + fileName, e);
+        }
+    }
+
+    /**
+     * Resolves a resource to a path on the file system, or falls back to a default path when it
+     * does not exist (for files the caller creates, such as logs).
+     *
+     * @param fileName    Name of the resource.
+     * @param classLoader Class loader to search.
+     * @param fallback    Path returned if the resource cannot be resolved.
+     * @return The path of the resource, or {@code fallback}.
+     */
+    public static Path resolveOrDefault(String fileName, ClassLoader classLoader, Path fallback) {
+        try {
+            return resolve(fileName, classLoader);
+        } catch (FileReaderException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Tells whether a file is too large to be loaded in memory.
+     *
+     * @param path File to check.
+     * @return true if its size exceeds {@link #OUT_OF_CORE_THRESHOLD}.
+     * @throws IOException If the size cannot be read.
+     */
+    public static boolean isOutOfCore(Path path) throws IOException {
+        return Files.size(path) > OUT_OF_CORE_THRESHOLD;
+    }
+}
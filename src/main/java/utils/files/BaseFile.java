@@ -2,6 +2,10 @@ package utils.files;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
 
 /**
  * Abstract class representing a generic file.
@@ -25,6 +29,20 @@ public abstract class BaseFile {
 	/** File name (with extension). */
 	protected String fileName;
 
+	/** True when the in-memory content has changes not yet written to disk. */
+	protected boolean dirty;
+
+	/** State of the file on disk at the last read or write (negative size: unknown). */
+	private FileTime syncedModifiedTime;
+	private long syncedSize = -1;
+	private Object syncedFileKey;
+
+	/** I/O counters, performed and avoided. */
+	private long readCount;
+	private long writeCount;
+	private long skippedReadCount;
+	private long skippedWriteCount;
+
 	/**
 	 * Constructor for a generic file.
 	 *
@@ -113,6 +131,96 @@ public abstract class BaseFile {
 		return getClass().getSimpleName() + "[name=" + fileName + ", path=" + getFilePath() + "]";
 	}
 
+	// ========== CHANGE TRACKING ==========
+	/**
+	 * Records the current state of the file on disk (modification time, size, file key),
+	 * after the content has been read from or written to it.
+	 */
+	protected void markSynced() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			syncedModifiedTime = attributes.lastModifiedTime();
+			syncedSize = attributes.size();
+			syncedFileKey = attributes.fileKey();
+		} catch (IOException e) {
+			forgetSync();
+		}
+	}
+
+	/**
+	 * Forgets the recorded disk state: the next check will see the file as changed.
+	 */
+	protected void forgetSync() {
+		syncedModifiedTime = null;
+		syncedSize = -1;
+		syncedFileKey = null;
+	}
+
+	/**
+	 * Checks whether the file on disk changed since the last read or write
+	 * (or was never read nor written by this object).
+	 *
+	 * @return true if the file must be read again.
+	 */
+	protected boolean isChangedOnDisk() {
+		if (syncedSize < 0) {
+			return true;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			return !attributes.lastModifiedTime().equals(syncedModifiedTime)
+					|| attributes.size() != syncedSize
+					|| !Objects.equals(attributes.fileKey(), syncedFileKey);
+		} catch (IOException e) {
+			return true; // deleted or unreadable
+		}
+	}
+
+	/**
+	 * Checks whether the in-memory content has unsaved changes.
+	 *
+	 * @return true if the content must be written.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	protected void countRead() {
+		readCount++;
+	}
+
+	protected void countWrite() {
+		writeCount++;
+	}
+
+	protected void countSkippedRead() {
+		skippedReadCount++;
+	}
+
+	protected void countSkippedWrite() {
+		skippedWriteCount++;
+	}
+
+	/** @return Number of reads actually performed on disk. */
+	public long getReadCount() {
+		return readCount;
+	}
+
+	/** @return Number of writes actually performed on disk. */
+	public long getWriteCount() {
+		return writeCount;
+	}
+
+	/** @return Number of reads avoided because the file did not change. */
+	public long getSkippedReadCount() {
+		return skippedReadCount;
+	}
+
+	/** @return Number of writes avoided because nothing changed. */
+	public long getSkippedWriteCount() {
+		return skippedWriteCount;
+	}
+
 	// ========== ABSTRACT METHODS ==========
 	/**
 	 * Reads the file content.
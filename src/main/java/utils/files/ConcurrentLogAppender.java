@@ -0,0 +1,292 @@
+package utils.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log file shared by several threads. <br>
+ * Producers only enqueue their records in a lock-free queue; a single writer thread drains it
+ * and appends the records through a {@link LineAppender}. Every drained batch ends with one
+ * {@link LineAppender#endOfWrite()}, so the records of a batch share the same write (and fsync,
+ * if the {@link FlushPolicy} asks for it) instead of paying one each (group commit). A batch
+ * holds at most {@code capacity} records, so the commits keep coming under sustained load. <br>
+ * The queue is bounded: when it is full, {@link #offer(CharSequence)} drops the record and
+ * {@link #put(CharSequence)} waits for the writer. Dropped records are counted.
+ */
+public final class ConcurrentLogAppender implements Closeable {
+	/** Default maximum number of records waiting to be written. */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/** Wait of the writer while some lines are buffered but not flushed yet (time-based policies). */
+	private static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/** Wait of a producer blocked by a full queue, between two checks. */
+	private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final Path path;
+	private final int capacity;
+	private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+	/** Records reserved by producers and not yet taken by the writer (may be ahead of the queue). */
+	private final AtomicInteger size = new AtomicInteger();
+	private final Thread writer;
+
+	private final LongAdder enqueuedCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+	private volatile long writtenCount;
+	private volatile long batchCount;
+
+	/** Set by the writer just before it parks, so producers only unpark it when needed. */
+	private volatile boolean sleeping;
+	private volatile boolean closed;
+	/** Error that stopped the writer thread, rethrown by {@link #close()} and {@link #put}. */
+	private volatile Throwable failure;
+
+	/**
+	 * Opens (or creates) a log file and starts its writer thread.
+	 *
+	 * @param path     File to append to.
+	 * @param capacity Maximum number of records waiting to be written.
+	 * @param policy   When the writer flushes the lines it has appended.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public ConcurrentLogAppender(Path path, int capacity, FlushPolicy policy) throws IOException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.path = path;
+		this.capacity = capacity;
+		LineAppender appender = new LineAppender(path, policy);
+		this.writer = new Thread(() -> run(appender), "log-appender-" + path.getFileName());
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Opens a log file with the default capacity, flushing after every batch.
+	 *
+	 * @param path File to append to.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public ConcurrentLogAppender(Path path) throws IOException {
+		this(path, DEFAULT_CAPACITY, FlushPolicy.eachWrite(false));
+	}
+
+	/**
+	 * Enqueues a record without waiting.
+	 *
+	 * @param record Line to log (converted to a String right away).
+	 * @return true if the record was enqueued, false if the queue was full or the writer
+	 *         failed (the record is then counted as dropped).
+	 * @throws IllegalStateException If the appender is closed.
+	 */
+	public boolean offer(CharSequence record) {
+		ensureOpen();
+		if (failure != null || !reserve()) {
+			droppedCount.increment();
+			return false;
+		}
+		return enqueue(record.toString());
+	}
+
+	/**
+	 * Enqueues a record, waiting for the writer while the queue is full.
+	 *
+	 * @param record Line to log (converted to a String right away).
+	 * @throws IllegalStateException   If the appender is closed (possibly while waiting).
+	 * @throws InterruptedIOException  If the thread is interrupted while waiting.
+	 * @throws IOException             If the writer thread failed.
+	 */
+	public void put(CharSequence record) throws IOException {
+		String line = record.toString();
+		while (true) {
+			ensureOpen();
+			if (failure != null) {
+				droppedCount.increment();
+				throw writerFailure();
+			}
+			if (reserve()) {
+				if (!enqueue(line)) {
+					throw writerFailure();
+				}
+				return;
+			}
+			LockSupport.parkNanos(this, BACKOFF_NANOS);
+			if (Thread.interrupted()) {
+				droppedCount.increment();
+				throw new InterruptedIOException("Interrupted while waiting for the log queue");
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting records, waits until the queued ones are written, then closes the file.
+	 *
+	 * @throws IOException If the writer thread failed, or the thread is interrupted while waiting.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			LockSupport.unpark(writer);
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing " + path);
+		}
+		if (failure != null) {
+			throw writerFailure();
+		}
+	}
+
+	private IOException writerFailure() {
+		return failure instanceof IOException e ? e : new IOException("Log writer failed", failure);
+	}
+
+	// Reserves a slot in the queue; false if it is full
+	private boolean reserve() {
+		int current;
+		do {
+			current = size.get();
+			if (current >= capacity) {
+				return false;
+			}
+		} while (!size.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	// Queues a reserved record; false if the writer failed and the record was dropped
+	private boolean enqueue(String line) {
+		if (closed) {
+			// Closed after our first check: the writer may already be gone
+			size.decrementAndGet();
+			droppedCount.increment();
+			ensureOpen();
+		}
+		queue.offer(line);
+		if (failure != null) {
+			// The writer stopped after we checked: it raised the flag before emptying the queue,
+			// so either it took our record or we take it back here
+			discardQueued();
+			return false;
+		}
+		enqueuedCount.increment();
+		// The writer checks the size after raising the flag, so one of us sees the other
+		if (sleeping) {
+			LockSupport.unpark(writer);
+		}
+		return true;
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("Log appender closed: " + path);
+		}
+	}
+
+	// Loop of the writer thread
+	private void run(LineAppender appender) {
+		try (appender) {
+			while (true) {
+				int batch = drain(appender);
+				if (batch > 0) {
+					batchCount++;
+				}
+				boolean flushed = appender.endOfWrite();
+
+				if (size.get() > 0) {
+					// Records left for the next batch, or a slot reserved whose record is not in the queue yet
+					if (batch == 0) Thread.onSpinWait();
+					continue;
+				}
+				if (closed) {
+					// Producers check the flag after reserving: once it is seen, the size is final
+					if (size.get() == 0) break;
+					continue;
+				}
+				sleeping = true;
+				if (size.get() == 0 && !closed) {
+					if (flushed) {
+						LockSupport.park(this);
+					} else {
+						LockSupport.parkNanos(this, LINGER_NANOS);
+					}
+				}
+				sleeping = false;
+			}
+		} catch (Throwable e) {
+			// Any error stops the writer: producers must see it rather than wait for it forever
+			failure = e;
+			discardQueued();
+		}
+	}
+
+	// Drops the records that will never be written (the writer failed)
+	private void discardQueued() {
+		while (queue.poll() != null) {
+			size.decrementAndGet();
+			droppedCount.increment();
+		}
+	}
+
+	// Appends what is currently in the queue, without waiting; at most capacity records, so that
+	// producers that never pause cannot put off the end of the batch (and its fsync) forever
+	private int drain(LineAppender appender) throws IOException {
+		int count = 0;
+		String line;
+		while (count < capacity && (line = queue.poll()) != null) {
+			size.decrementAndGet();
+			appender.append(line);
+			count++;
+		}
+		writtenCount += count;
+		return count;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/** @return Number of records waiting to be written. */
+	public int getPendingCount() {
+		return size.get();
+	}
+
+	/** @return Number of records accepted by {@link #offer} or {@link #put}. */
+	public long getEnqueuedCount() {
+		return enqueuedCount.sum();
+	}
+
+	/** @return Number of records rejected because the queue was full or the writer failed. */
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	/** @return Number of records handed to the file by the writer thread. */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+
+	/** @return Number of batches written (records per batch = written / batches). */
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentLogAppender[" + path + ", pending=" + getPendingCount() + ", enqueued=" + getEnqueuedCount()
+				+ ", written=" + writtenCount + ", dropped=" + getDroppedCount() + ", batches=" + batchCount + "]";
+	}
+}
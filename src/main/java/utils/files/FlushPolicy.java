@@ -0,0 +1,93 @@
+package utils.files;
+
+/**
+ * Tells a {@link LineAppender} when to push its buffered lines to the file,
+ * and whether to force them to the storage device (fsync) at that point. <br>
+ * Policies are checked when lines are written: with a time-based policy, lines written
+ * just before a pause stay buffered until the next write, {@code flush()} or {@code close()}.
+ */
+public final class FlushPolicy {
+	/** Lines between two flushes (0: not based on lines). */
+	private final int lines;
+
+	/** Milliseconds between two flushes (0: not based on time). */
+	private final long millis;
+
+	/** Whether each flush is followed by an fsync. */
+	private final boolean fsync;
+
+	private FlushPolicy(int lines, long millis, boolean fsync) {
+		this.lines = lines;
+		this.millis = millis;
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Flushes at the end of every write call.
+	 *
+	 * @param fsync Whether to force the data to the device on every flush.
+	 * @return The policy.
+	 */
+	public static FlushPolicy eachWrite(boolean fsync) {
+		return new FlushPolicy(0, 0, fsync);
+	}
+
+	/**
+	 * Flushes once every {@code lines} lines.
+	 *
+	 * @param lines Number of lines between two flushes.
+	 * @param fsync Whether to force the data to the device on every flush.
+	 * @return The policy.
+	 */
+	public static FlushPolicy everyLines(int lines, boolean fsync) {
+		if (lines <= 0) {
+			throw new IllegalArgumentException("Line count must be positive: " + lines);
+		}
+		return new FlushPolicy(lines, 0, fsync);
+	}
+
+	/**
+	 * Flushes when at least {@code millis} ms have passed since the last flush.
+	 *
+	 * @param millis Delay between two flushes.
+	 * @param fsync  Whether to force the data to the device on every flush.
+	 * @return The policy.
+	 */
+	public static FlushPolicy everyMillis(long millis, boolean fsync) {
+		if (millis <= 0) {
+			throw new IllegalArgumentException("Delay must be positive: " + millis);
+		}
+		return new FlushPolicy(0, millis, fsync);
+	}
+
+	/**
+	 * Checks whether buffered lines must be flushed.
+	 *
+	 * @param pendingLines   Lines written since the last flush.
+	 * @param lastFlushNanos Time of the last flush ({@link System#nanoTime()}).
+	 * @param endOfWrite     true at the end of a write call.
+	 * @return true if the lines must be flushed now.
+	 */
+	boolean shouldFlush(int pendingLines, long lastFlushNanos, boolean endOfWrite) {
+		if (pendingLines == 0) {
+			return false;
+		}
+		if (lines > 0) {
+			return pendingLines >= lines;
+		}
+		if (millis > 0) {
+			return System.nanoTime() - lastFlushNanos >= millis * 1_000_000L;
+		}
+		return endOfWrite;
+	}
+
+	public boolean isFsync() {
+		return fsync;
+	}
+
+	@Override
+	public String toString() {
+		String trigger = lines > 0 ? "every " + lines + " lines" : millis > 0 ? "every " + millis + " ms" : "each write";
+		return "FlushPolicy[" + trigger + (fsync ? ", fsync" : "") + "]";
+	}
+}
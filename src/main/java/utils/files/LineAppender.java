@@ -0,0 +1,147 @@
+package utils.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes lines at the end of a file through a channel kept open in APPEND mode. <br>
+ * Lines are encoded (UTF-8, like {@link java.nio.file.Files#write}) into a reusable direct
+ * buffer, which is written to the file when it is full or when the {@link FlushPolicy} asks for it.
+ * Only the new lines are written: the cost of an append does not depend on the file size.
+ */
+public final class LineAppender implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private final FileChannel channel;
+	private final FlushPolicy policy;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+	/** Lines written since the last flush. */
+	private int pendingLines;
+	private long lastFlushNanos = System.nanoTime();
+
+	/**
+	 * Opens (or creates) a file for appending.
+	 *
+	 * @param path   File to append to.
+	 * @param policy When to flush the buffered lines.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public LineAppender(Path path, FlushPolicy policy) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		this.policy = policy;
+	}
+
+	/**
+	 * Buffers one line (a line separator is added).
+	 *
+	 * @param line Line to append.
+	 * @throws IOException If the buffer had to be written and the write failed.
+	 */
+	public void append(CharSequence line) throws IOException {
+		encode(CharBuffer.wrap(line));
+		encode(CharBuffer.wrap(LINE_SEPARATOR));
+		pendingLines++;
+		if (policy.shouldFlush(pendingLines, lastFlushNanos, false)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Buffers a lone line separator, to end a last line that was written without one.
+	 *
+	 * @throws IOException If the buffer had to be written and the write failed.
+	 */
+	public void appendSeparator() throws IOException {
+		encode(CharBuffer.wrap(LINE_SEPARATOR));
+	}
+
+	/**
+	 * Marks the end of a write call: flushes if the policy asks for it.
+	 *
+	 * @return true if the buffered lines were flushed.
+	 * @throws IOException If the write failed.
+	 */
+	public boolean endOfWrite() throws IOException {
+		if (policy.shouldFlush(pendingLines, lastFlushNanos, true)) {
+			flush();
+			return true;
+		}
+		return !hasPending();
+	}
+
+	/**
+	 * Writes the buffered bytes to the file, then forces them to the device
+	 * if the policy requires it.
+	 *
+	 * @throws IOException If the write failed.
+	 */
+	public void flush() throws IOException {
+		drain();
+		if (policy.isFsync()) {
+			channel.force(false);
+		}
+		pendingLines = 0;
+		lastFlushNanos = System.nanoTime();
+	}
+
+	/**
+	 * Checks whether some lines are still buffered (not yet in the file).
+	 *
+	 * @return true if {@link #flush()} would write something.
+	 */
+	public boolean hasPending() {
+		return buffer.position() > 0;
+	}
+
+	/**
+	 * Drops the buffered bytes, e.g. when the whole file is about to be rewritten.
+	 */
+	public void discardPending() {
+		buffer.clear();
+		pendingLines = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void encode(CharBuffer chars) throws IOException {
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isError()) {
+				result.throwException();
+			} else {
+				encoder.reset();
+				return;
+			}
+		}
+	}
+
+	// Writes the whole buffer to the channel
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
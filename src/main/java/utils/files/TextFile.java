@@ -1,15 +1,21 @@
 package utils.files;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Concrete class representing a text file (.txt).
@@ -19,9 +25,43 @@ import java.util.List;
  *
  * @author Elias Kassas
  */
-public class TextFile extends BaseFile implements Iterable<String> {
-	/** In-memory content of the file, each element representing one line. */
-	private final LinkedList<String> content;
+public class TextFile extends BaseFile implements Iterable<String>, AutoCloseable {
+	/**
+	 * In-memory content of the file, each element representing one line. <br>
+	 * Lines read from disk stay null until first accessed (see {@link #getLine(int)}).
+	 */
+	private final ArrayList<String> content;
+
+	/**
+	 * Bytes of the file as last read, until every line has been materialized. <br>
+	 * Kept as bytes rather than as a String: no decoding at read time, and one byte per
+	 * character for ASCII text whatever the content of the other lines.
+	 */
+	private byte[] raw;
+
+	/**
+	 * Start of each line read from disk in {@link #raw}, followed by the length of {@link #raw}. <br>
+	 * A line ends where the next one starts, minus its terminator (see {@link #lineEnd(int)}).
+	 */
+	private int[] lineStarts;
+
+	/** True if {@link #raw} is pure ASCII: every line can then be copied without decoding. */
+	private boolean rawAscii;
+
+	/** Number of leading lines of {@link #content} already written to the file (or buffered for it). */
+	private int persistedLines;
+
+	/** True after an in-place edit (setLine, remove): the next write must rewrite the whole file. */
+	private boolean rewriteNeeded;
+
+	/** True if the file, as last read, ends with a line that has no terminator: an append must end it first. */
+	private boolean unterminated;
+
+	/** Flush policy of the append mode (null: every write rewrites the whole file). */
+	private FlushPolicy appendPolicy;
+
+	/** Channel used by the append mode, opened on the first append. */
+	private LineAppender appender;
 
 	/**
 	 * Constructor for a text file. <br>
@@ -33,7 +73,7 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 */
 	public TextFile(File folder, String fileName) throws IOException {
 		super(folder, fileName, ".txt");
-		this.content = new LinkedList<>();
+		this.content = new ArrayList<>();
 
 		if (file.exists()) {
 			read();
@@ -51,7 +91,7 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 */
 	public TextFile(String fileName) throws IOException {
 		super(fileName, ".txt");
-		this.content = new LinkedList<>();
+		this.content = new ArrayList<>();
 
 		if (file.exists()) {
 			read();
@@ -77,17 +117,94 @@ public class TextFile extends BaseFile implements Iterable<String> {
 			throw new IOException("File cannot be read (permissions): " + file.getAbsolutePath());
 		}
 
+		// Lines still buffered by the append mode must reach the file before it is read;
+		// the channel is reopened by the next append, in case the file was replaced
+		closeAppender();
+
 		content.clear();
+		raw = Files.readAllBytes(file.toPath());
+		unterminated = raw.length > 0 && raw[raw.length - 1] != '\n' && raw[raw.length - 1] != '\r';
+		indexLines();
+		persistedLines = content.size();
+		rewriteNeeded = false;
+		dirty = false;
+		markSynced();
+		countRead();
+	}
+
+	/**
+	 * Reads the file again only if it changed on disk since the last read or write.
+	 * Unsaved in-memory changes are kept when the file did not change.
+	 *
+	 * @throws IOException           If the file cannot be read.
+	 * @throws IllegalStateException If the file changed on disk while there are unsaved in-memory
+	 *                               changes: call {@link #write(Object...)} to keep the memory, or
+	 *                               {@link #read()} to keep the disk.
+	 */
+	public void refresh() throws IOException {
+		if (appender != null && appender.hasPending()) {
+			flush();
+		}
+		if (isChangedOnDisk()) {
+			if (dirty) {
+				throw new IllegalStateException("File changed on disk with unsaved changes in memory: " + file.getAbsolutePath());
+			}
+			read();
+		} else {
+			countSkippedRead();
+		}
+	}
 
-		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-			String line = reader.readLine();
-			while (line != null) {
-				this.content.add(line);
-				line = reader.readLine();
+	/**
+	 * Builds the line index of {@link #raw} in a single pass, and checks whether it is ASCII. <br>
+	 * Same line terminators as {@link java.io.BufferedReader#readLine()}: "\n", "\r" or "\r\n"
+	 * (the charset of the file is assumed to be ASCII-compatible, like UTF-8 or ISO-8859-1).
+	 */
+	private void indexLines() {
+		int[] starts = new int[16];
+		int count = 0;
+		int start = 0;
+		int length = raw.length;
+		int highBits = 0;
+
+		for (int i = 0; i < length; i++) {
+			byte b = raw[i];
+			highBits |= b;
+			if (b != '\n' && b != '\r') continue;
+
+			if (count + 1 == starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
 			}
+			starts[count++] = start;
+			if (b == '\r' && i + 1 < length && raw[i + 1] == '\n') i++;
+			start = i + 1;
+		}
+		// Last line without terminator, then the end of the text
+		if (start < length) {
+			starts[count++] = start;
+		}
+		lineStarts = Arrays.copyOf(starts, count + 1);
+		lineStarts[count] = length;
+		rawAscii = highBits >= 0;
+		content.ensureCapacity(count);
+		content.addAll(Collections.nCopies(count, null));
+		if (count == 0) {
+			raw = null;
 		}
 	}
 
+	/**
+	 * Materializes every line not accessed yet, then releases the raw bytes.
+	 */
+	private void materializeAll() {
+		if (raw == null) return;
+		for (int i = 0; i < content.size(); i++) {
+			getLine(i);
+		}
+		raw = null;
+		lineStarts = null;
+	}
+
 	/**
 	 * Writes the in-memory content to the file, each element on a new line.
 	 * If arguments are provided, args[0] is added to the in-memory content
@@ -107,14 +224,121 @@ public class TextFile extends BaseFile implements Iterable<String> {
 			} else {
 				content.add(arg.toString());
 			}
+			dirty = true;
+		}
+
+		// Buffered lines are ours: the file is only known to be in sync again once they are flushed
+		boolean pending = appender != null && appender.hasPending();
+		boolean inSync = pending || !isChangedOnDisk();
+
+		// Nothing to write if the memory and the disk are still in sync
+		if (!dirty && inSync) {
+			countSkippedWrite();
+			return;
 		}
 
+		if (appendPolicy != null && !rewriteNeeded && inSync) {
+			appendNewLines();
+			return;
+		}
+
+		// Buffered lines are part of the content being rewritten; the channel may also point to a
+		// file replaced by someone else, so the next append opens a new one
+		dropAppender();
+		materializeAll();
 		try {
 			Files.write(file.toPath(), content);
 		} catch (IOException e) {
 			System.err.println("Write error: " + e.getMessage());
 			throw e;
 		}
+		persistedLines = content.size();
+		rewriteNeeded = false;
+		unterminated = false;
+		dirty = false;
+		markSynced();
+		countWrite();
+	}
+
+	/**
+	 * Append mode: writes only the lines added since the last write.
+	 */
+	private void appendNewLines() throws IOException {
+		if (appender == null) {
+			appender = new LineAppender(file.toPath(), appendPolicy);
+		}
+		if (unterminated && persistedLines < content.size()) {
+			appender.appendSeparator();
+			unterminated = false;
+		}
+		for (int i = persistedLines; i < content.size(); i++) {
+			appender.append(getLine(i));
+		}
+		persistedLines = content.size();
+		dirty = false;
+		if (appender.endOfWrite()) {
+			markSynced();
+		}
+		countWrite();
+	}
+
+	/**
+	 * Enables (or disables) the append mode. <br>
+	 * In append mode, {@link #write(Object...)} keeps the file open and only writes the lines
+	 * added since the previous write; the whole file is rewritten only after an in-place edit
+	 * ({@link #setLine}, {@link #remove}) or if the file was changed by someone else.
+	 *
+	 * @param policy When appended lines are flushed (and synced) to the file; null to disable.
+	 * @throws IOException If buffered lines cannot be flushed.
+	 */
+	public void setAppendMode(FlushPolicy policy) throws IOException {
+		closeAppender();
+		appendPolicy = policy;
+	}
+
+	/**
+	 * Writes the lines buffered by the append mode to the file.
+	 *
+	 * @throws IOException If the write failed.
+	 */
+	public void flush() throws IOException {
+		if (appender != null) {
+			appender.flush();
+			markSynced();
+		}
+	}
+
+	/**
+	 * Flushes and closes the channel of the append mode (it is reopened by the next append).
+	 *
+	 * @throws IOException If buffered lines cannot be flushed.
+	 */
+	@Override
+	public void close() throws IOException {
+		closeAppender();
+	}
+
+	private void closeAppender() throws IOException {
+		if (appender != null) {
+			try {
+				appender.close();
+			} finally {
+				appender = null;
+			}
+			markSynced();
+		}
+	}
+
+	// Closes the channel of the append mode without writing its buffered lines
+	private void dropAppender() throws IOException {
+		if (appender != null) {
+			appender.discardPending();
+			try {
+				appender.close();
+			} finally {
+				appender = null;
+			}
+		}
 	}
 
 	/**
@@ -125,6 +349,7 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	public void add(Object o) {
 		String s = o.toString();
 		content.add(s);
+		dirty = true;
 	}
 
 	/**
@@ -133,7 +358,11 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 * @param o Object to remove.
 	 */
 	public void remove(Object o) {
-		content.removeIf(e -> e.equals(o.toString()));
+		materializeAll();
+		if (content.removeIf(e -> e.equals(o.toString()))) {
+			dirty = true;
+			rewriteNeeded = true;
+		}
 	}
 
 	/**
@@ -141,16 +370,26 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 */
 	public void clear() throws IOException {
 		content.clear();
+		raw = null;
+		dropAppender();
 		Files.write(file.toPath(), Collections.emptyList());
+		persistedLines = 0;
+		rewriteNeeded = false;
+		unterminated = false;
+		dirty = false;
+		markSynced();
+		countWrite();
 	}
 
 	/**
 	 * Returns a copy of the in-memory content.
 	 *
 	 * @return List of lines.
+	 * @throws IllegalStateException If the file changed on disk with unsaved changes (see {@link #refresh()}).
 	 */
 	public ArrayList<Object> getContent() throws IOException {
-		read();
+		refresh();
+		materializeAll();
 		ArrayList<Object> list = new ArrayList<>(content.size());
         list.addAll(content);
 		return list;
@@ -160,9 +399,10 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 * Checks whether the in-memory content is empty.
 	 *
 	 * @return true if empty, false otherwise.
+	 * @throws IllegalStateException If the file changed on disk with unsaved changes (see {@link #refresh()}).
 	 */
 	public boolean isEmpty() throws IOException {
-		read();
+		refresh();
 		return content.isEmpty();
 	}
 
@@ -174,8 +414,10 @@ public class TextFile extends BaseFile implements Iterable<String> {
 	 */
 	public boolean contains(Object o) throws IOException {
 		write();
-		for (Object obj : content) {
-			if (obj.toString().equals(o.toString())) {
+		// Compared on the views: lines not accessed yet are not turned into Strings
+		String target = o.toString();
+		for (int i = 0; i < content.size(); i++) {
+			if (target.contentEquals(getLineView(i))) {
 				return true;
 			}
 		}
@@ -193,10 +435,26 @@ public class TextFile extends BaseFile implements Iterable<String> {
 			return false;
 		}
 
+		if (appender != null) {
+			appender.discardPending();
+			try {
+				appender.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close the appended file: " + e.getMessage());
+			}
+			appender = null;
+		}
+
 		boolean deleted = file.delete();
 		if (deleted) {
 			System.out.println("File " + file.getName() + " was physically deleted.");
 			content.clear();
+			raw = null;
+			dirty = false;
+			persistedLines = 0;
+			rewriteNeeded = false;
+			unterminated = false;
+			forgetSync();
 		} else {
 			System.err.println("Failed to physically delete the file: " + file.getName());
 		}
@@ -205,23 +463,225 @@ public class TextFile extends BaseFile implements Iterable<String> {
 
 	/**
 	 * Returns an iterator for the file content.
-	 * This allows: <br> {@code for (String line : myFile) {...}}
+	 * This allows: <br> {@code for (String line : myFile) {...}} <br>
+	 * The iterator works on a snapshot of the lines taken when it is created, so the file can be
+	 * modified (e.g. {@link #remove}) during the loop. Only the references are copied: lines not
+	 * accessed yet are still decoded one at a time, from the bytes read at that point.
 	 *
 	 * @return Iterator over lines.
 	 */
 	@Override
 	public Iterator<String> iterator() {
-		ArrayList<String> copy = new ArrayList<>();
+		String[] lines = content.toArray(new String[0]);
+		byte[] bytes = raw;
+		int[] starts = lineStarts;
+		boolean ascii = rawAscii;
+
+		return new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < lines.length;
+			}
+
+			@Override
+			public String next() {
+				if (next >= lines.length) {
+					throw new NoSuchElementException();
+				}
+				int line = next++;
+				return lines[line] != null ? lines[line] : decode(bytes, starts, ascii, line);
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream over the lines, without copying them. <br>
+	 * The stream splits on line boundaries and each split only builds the Strings
+	 * of its own lines, so {@code lines().parallel()} really runs in parallel.
+	 * The file must not be modified while the stream is in use.
+	 *
+	 * @return Ordered stream of lines.
+	 */
+	public Stream<String> lines() {
+		return StreamSupport.stream(new LineSpliterator<>(0, content.size(), this::lineAt), false);
+	}
+
+	/**
+	 * Same as {@link #lines()}, but with the lines as views (see {@link #getLineView(int)}):
+	 * scanning the lines does not create any String for those not accessed yet.
+	 *
+	 * @return Ordered stream of lines.
+	 */
+	public Stream<CharSequence> lineViews() {
+		return StreamSupport.stream(new LineSpliterator<>(0, content.size(), this::getLineView), false);
+	}
+
+	// Line without caching it (safe to call from several threads)
+	private String lineAt(int line) {
+		String s = content.get(line);
+		return s != null ? s : decode(line);
+	}
+
+	// String of a line not materialized yet; ASCII is copied as is (compact Latin-1 String)
+	private String decode(int line) {
+		return decode(raw, lineStarts, rawAscii, line);
+	}
+
+	private static String decode(byte[] raw, int[] lineStarts, boolean rawAscii, int line) {
+		int start = lineStarts[line];
+		int end = lineEnd(raw, lineStarts, line);
+		Charset charset = rawAscii || isAscii(raw, start, end)
+				? StandardCharsets.ISO_8859_1
+				: Charset.defaultCharset();
+		return new String(raw, start, end - start, charset);
+	}
+
+	private int lineEnd(int line) {
+		return lineEnd(raw, lineStarts, line);
+	}
+
+	// End of a line read from disk (exclusive): start of the next one, minus "\n", "\r" or "\r\n"
+	private static int lineEnd(byte[] raw, int[] lineStarts, int line) {
+		int start = lineStarts[line];
+		int end = lineStarts[line + 1];
+		if (end > start && raw[end - 1] == '\n') {
+			end--;
+			if (end > start && raw[end - 1] == '\r') end--;
+		} else if (end > start && raw[end - 1] == '\r') {
+			end--;
+		}
+		return end;
+	}
+
+	private static boolean isAscii(byte[] bytes, int from, int to) {
+		int highBits = 0;
+		for (int i = from; i < to; i++) {
+			highBits |= bytes[i];
+		}
+		return highBits >= 0;
+	}
+
+	/**
+	 * Returns a line without turning it into a String if it was not accessed yet. <br>
+	 * An ASCII line read from disk is returned as a view over the bytes of the file
+	 * ({@code toString()} builds the String); other lines are returned as Strings.
+	 * A view stays valid (on the content it was taken from) after the file is modified or read again.
+	 *
+	 * @param line Index of the line.
+	 * @return The line, without its terminator.
+	 */
+	public CharSequence getLineView(int line) {
+		String s = content.get(line);
+		if (s != null) {
+			return s;
+		}
+		int start = lineStarts[line];
+		int end = lineEnd(line);
+		if (rawAscii || isAscii(raw, start, end)) {
+			return new AsciiLine(raw, start, end);
+		}
+		return decode(line);
+	}
+
+	/**
+	 * ASCII characters of a line, read directly from the bytes of the file.
+	 */
+	private static final class AsciiLine implements CharSequence {
+		private final byte[] bytes;
+		private final int start;
+		private final int end;
+
+		private AsciiLine(byte[] bytes, int start, int end) {
+			this.bytes = bytes;
+			this.start = start;
+			this.end = end;
+		}
 
-		for (Object obj : content) {
-			copy.add(obj.toString());
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+			}
+			return (char) bytes[start + index];
 		}
 
-		return Collections.unmodifiableList(copy).iterator();
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || from > to || to > end - start) {
+				throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + (end - start));
+			}
+			return new AsciiLine(bytes, start + from, start + to);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return start == end;
+		}
+
+		@Override
+		public String toString() {
+			return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * Spliterator over a range of line indices, split in halves.
+	 */
+	private static final class LineSpliterator<T> implements Spliterator<T> {
+		private int from;
+		private final int to;
+		private final IntFunction<T> lineAt;
+
+		private LineSpliterator(int from, int to, IntFunction<T> lineAt) {
+			this.from = from;
+			this.to = to;
+			this.lineAt = lineAt;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (from >= to) return false;
+			action.accept(lineAt.apply(from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (from < to) {
+				action.accept(lineAt.apply(from++));
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int mid = (from + to) >>> 1;
+			if (mid <= from) return null;
+			LineSpliterator<T> prefix = new LineSpliterator<>(from, mid, lineAt);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
 	}
 
 	@Override
 	public String toString() {
+		materializeAll();
 		StringBuilder sb = new StringBuilder(super.toString() + " {\n");
 
 		for (String line : content) {
@@ -232,12 +692,26 @@ public class TextFile extends BaseFile implements Iterable<String> {
 		return sb.toString();
 	}
 
+	/**
+	 * Returns a line in O(1). Lines read from disk are only turned into Strings
+	 * when first accessed.
+	 *
+	 * @param line Index of the line.
+	 * @return The line, without its terminator.
+	 */
 	public String getLine(int line) {
-		return content.get(line);
+		String s = content.get(line);
+		if (s == null) {
+			s = decode(line);
+			content.set(line, s);
+		}
+		return s;
 	}
 
 	public boolean setLine(int line, String newLine) {
 		content.set(line, newLine);
+		dirty = true;
+		rewriteNeeded = true;
 		return true;
 	}
 
@@ -262,6 +736,8 @@ public class TextFile extends BaseFile implements Iterable<String> {
 
 		System.out.println("OK - Content written to disk.");
 
+		// Only the new line is written on each call, flushed every 1000 lines
+		file.setAppendMode(FlushPolicy.everyLines(1000, false));
 		int i;
 		for (i = 0; i < 1e4; i++) {
 			if (i % 1000 == 0) {
@@ -269,7 +745,7 @@ public class TextFile extends BaseFile implements Iterable<String> {
 			}
 			file.write("line " + i);
 		}
-		file.write();
+		file.close();
 		System.out.println("OK - Content written to disk. " + i + " lines.");
 
 		file.read();
@@ -0,0 +1,119 @@
+package day5;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentFreshnessIndexTest {
+    private static final long PERMANENT_START = 1_000_000L;
+    private static final long PERMANENT_END = 1_000_999L;
+    private static final long FIRST_START = 10;
+    private static final long FIRST_END = 19;
+    private static final long SECOND_START = 50;
+    private static final long SECOND_END = 59;
+
+    private static final int READERS = 4;
+    private static final long DURATION_MILLIS = 500;
+
+    @Test
+    void readersOnlySeeCompleteBatchesDuringUpdates() throws InterruptedException {
+        ConcurrentFreshnessIndex index = new ConcurrentFreshnessIndex();
+        index.add(PERMANENT_START, PERMANENT_END);
+        long permanentCount = PERMANENT_END - PERMANENT_START + 1;
+        long batchCount = (FIRST_END - FIRST_START + 1) + (SECOND_END - SECOND_START + 1);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Les deux intervalles arrivent et expirent toujours dans le même lot
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                index.update(batch -> {
+                    batch.add(FIRST_START, FIRST_END);
+                    batch.add(SECOND_START, SECOND_END);
+                });
+                index.update(batch -> {
+                    batch.remove(SECOND_START, SECOND_END);
+                    batch.remove(FIRST_START, FIRST_END);
+                });
+            }
+        });
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get() && failure.get() == null) {
+                    IntervalIndex snapshot = index.snapshot();
+                    boolean first = snapshot.contains(FIRST_START + random.nextLong(FIRST_END - FIRST_START + 1));
+                    boolean second = snapshot.contains(SECOND_START + random.nextLong(SECOND_END - SECOND_START + 1));
+                    long count = snapshot.getFreshIdCount();
+
+                    if (first != second) {
+                        failure.compareAndSet(null, "Half-applied batch: first=" + first + ", second=" + second);
+                    } else if (count != permanentCount + (first ? batchCount : 0)) {
+                        failure.compareAndSet(null, "Inconsistent fresh id count: " + count);
+                    } else if (!snapshot.contains(PERMANENT_START + random.nextLong(permanentCount))) {
+                        failure.compareAndSet(null, "Permanent range lost during an update");
+                    }
+                }
+            }));
+        }
+
+        writer.start();
+        readers.forEach(Thread::start);
+        Thread.sleep(DURATION_MILLIS);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readers) reader.join();
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(permanentCount, index.getFreshIdCount());
+    }
+
+    @Test
+    void failedBatchPublishesNothing() {
+        ConcurrentFreshnessIndex index = new ConcurrentFreshnessIndex();
+        index.add(1, 10);
+        IntervalIndex before = index.snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> index.update(batch -> {
+            batch.add(100, 200);
+            batch.remove(1, 10);
+            batch.remove(3, 5);
+        }));
+
+        assertSame(before, index.snapshot());
+        assertFalse(index.contains(150));
+        assertTrue(index.contains(5));
+
+        // Le lot raté a été annulé dans l'état des écrivains : l'intervalle retiré est de nouveau actif
+        index.add(300, 300);
+        assertFalse(index.contains(150));
+        assertEquals(11, index.getFreshIdCount());
+        index.remove(1, 10);
+        assertFalse(index.contains(5));
+        assertThrows(IllegalArgumentException.class, () -> index.remove(100, 200));
+    }
+
+    @Test
+    void batchCannotBeUsedAfterUpdate() {
+        ConcurrentFreshnessIndex index = new ConcurrentFreshnessIndex();
+        AtomicReference<ConcurrentFreshnessIndex.Batch> leaked = new AtomicReference<>();
+        index.update(leaked::set);
+
+        assertThrows(IllegalStateException.class, () -> leaked.get().add(1, 10));
+        assertFalse(index.contains(5));
+    }
+}
@@ -0,0 +1,97 @@
+package day5;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FreshRangeSetTest {
+
+    @Test
+    void adjacentRangesAreCoalesced() {
+        FreshRangeSet set = new FreshRangeSet();
+        set.add(1, 3);
+        set.add(4, 6);
+        assertEquals(1, set.getSegmentCount());
+
+        set.add(2, 5);
+        assertEquals(3, set.getSegmentCount());
+
+        // Une fois l'intervalle chevauchant expiré, il ne reste qu'un segment de couverture 1
+        set.remove(2, 5);
+        assertEquals(1, set.getSegmentCount());
+        assertEquals(6, set.getFreshIdCount());
+    }
+
+    @Test
+    void removeRejectsRangesThatWereNeverAdded() {
+        FreshRangeSet set = new FreshRangeSet();
+        set.add(1, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> set.remove(3, 5));
+        assertThrows(IllegalArgumentException.class, () -> set.remove(1, 11));
+        assertEquals(10, set.getFreshIdCount());
+
+        set.remove(1, 10);
+        assertThrows(IllegalArgumentException.class, () -> set.remove(1, 10));
+        assertEquals(0, set.getFreshIdCount());
+    }
+
+    @Test
+    void duplicateRangesExpireOneAtATime() {
+        FreshRangeSet set = new FreshRangeSet();
+        set.add(5, 8);
+        set.add(5, 8);
+
+        set.remove(5, 8);
+        assertTrue(set.contains(6));
+
+        set.remove(5, 8);
+        assertFalse(set.contains(6));
+    }
+
+    @Test
+    void matchesNaiveCoverageAndStaysMinimal() {
+        Random random = new Random(7);
+        int domain = 60;
+
+        for (int round = 0; round < 500; round++) {
+            FreshRangeSet set = new FreshRangeSet();
+            int[] coverage = new int[domain + 1];
+            List<int[]> added = new ArrayList<>();
+
+            for (int op = 0; op < 30; op++) {
+                if (!added.isEmpty() && random.nextInt(3) == 0) {
+                    int[] range = added.remove(random.nextInt(added.size()));
+                    set.remove(range[0], range[1]);
+                    for (int i = range[0]; i <= range[1]; i++) coverage[i]--;
+                } else {
+                    int start = random.nextInt(domain);
+                    int end = Math.min(domain, start + random.nextInt(8));
+                    set.add(start, end);
+                    added.add(new int[]{start, end});
+                    for (int i = start; i <= end; i++) coverage[i]++;
+                }
+
+                // Un segment par suite maximale d'IDs de même couverture non nulle
+                long fresh = 0;
+                int segments = 0;
+                for (int i = 0; i <= domain; i++) {
+                    assertEquals(coverage[i] > 0, set.contains(i), "contains(" + i + ")");
+                    if (coverage[i] > 0) {
+                        fresh++;
+                        if (i == 0 || coverage[i - 1] != coverage[i]) segments++;
+                    }
+                }
+                assertEquals(fresh, set.getFreshIdCount());
+                assertEquals(segments, set.getSegmentCount());
+            }
+        }
+    }
+}